@@ -1,10 +1,17 @@
 package ir.ac.ut.joboonja;
 
 import ir.ac.ut.joboonja.database.SchemaManager;
+import ir.ac.ut.joboonja.services.AuctionScheduler;
 import ir.ac.ut.joboonja.services.AuctionService;
+import ir.ac.ut.joboonja.services.BidPipeline;
+import ir.ac.ut.joboonja.services.ChangeListener;
+import ir.ac.ut.joboonja.services.ClusterNode;
+import ir.ac.ut.joboonja.services.ProjectService;
+import ir.ac.ut.joboonja.services.UserService;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 @Component
 public class Application {
@@ -12,5 +19,23 @@ public class Application {
     public void init() {
         System.out.println("\n\n\n &&&&&&&&&&&&&&&&& \n\n\n");
         SchemaManager.initialSchema();
+        try {
+            ClusterNode.local().start();
+            BidPipeline.start();
+            AuctionService.startScheduler();
+            ProjectService.loadProjectIndexes();
+            UserService.loadSkillIndex();
+            ChangeListener.start();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ChangeListener.stop();
+        AuctionScheduler.stop();
+        BidPipeline.stop();
+        ClusterNode.local().stop();
     }
 }
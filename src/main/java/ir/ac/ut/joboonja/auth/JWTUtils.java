@@ -2,6 +2,7 @@ package ir.ac.ut.joboonja.auth;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.SignatureException;
+import ir.ac.ut.joboonja.utilities.Config;
 
 import javax.crypto.spec.SecretKeySpec;
 import javax.xml.bind.DatatypeConverter;
@@ -12,6 +13,8 @@ public class JWTUtils {
 
     private final static String SECRET_KEY = "joboonja-joboonja-joboonja-joboonja-joboonja-joboonja-joboonja";
     private final static long JWT_TTL = 45*60*1000L;
+    private final static long STREAM_JWT_TTL = Config.getLong("joboonja.events.tokenMillis", 60*1000L);
+    private final static String STREAM_AUDIENCE = "events";
 
     public static String createJWT(String issuer) {
 
@@ -30,14 +33,46 @@ public class JWTUtils {
         return builder.compact();
     }
 
+    /**
+     * A token that only opens the event stream, for EventSource, which can't send headers and so has to put
+     * it in the URL. It expires after {@code joboonja.events.tokenMillis}, a minute by default; a reconnecting client fetches a new one.
+     */
+    public static String createStreamJWT(String issuer) {
+        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.HS256;
+        Date now = new Date(System.currentTimeMillis());
+        byte[] apiKeySecretBytes = DatatypeConverter.parseBase64Binary(SECRET_KEY);
+        Key signingKey = new SecretKeySpec(apiKeySecretBytes, signatureAlgorithm.getJcaName());
+
+        return Jwts.builder()
+            .setIssuedAt(now)
+            .setExpiration(new Date(now.getTime() + STREAM_JWT_TTL))
+            .setIssuer(issuer)
+            .setAudience(STREAM_AUDIENCE)
+            .signWith(signingKey, signatureAlgorithm)
+            .compact();
+    }
+
+    /**
+     * The user of an API token; stream tokens are rejected.
+     */
     public static String verifyJWT(String jwt) {
+        Claims claims = parse(jwt);
+        return claims == null || claims.getAudience() != null ? null : claims.getIssuer();
+    }
+
+    /**
+     * The user of a stream token; API tokens are rejected.
+     */
+    public static String verifyStreamJWT(String jwt) {
+        Claims claims = parse(jwt);
+        return claims == null || !STREAM_AUDIENCE.equals(claims.getAudience()) ? null : claims.getIssuer();
+    }
 
+    private static Claims parse(String jwt) {
         try {
-            Claims claims =
-                Jwts.parser()
+            return Jwts.parser()
                 .setSigningKey(DatatypeConverter.parseBase64Binary(SECRET_KEY))
                 .parseClaimsJws(jwt).getBody();
-            return claims.getIssuer();
         } catch (
             ExpiredJwtException |
             UnsupportedJwtException |
@@ -0,0 +1,55 @@
+package ir.ac.ut.joboonja.controllers;
+
+import ir.ac.ut.joboonja.database.QueryCache;
+import ir.ac.ut.joboonja.database.QueryRegistry;
+import ir.ac.ut.joboonja.database.QueryStats;
+import ir.ac.ut.joboonja.entities.User;
+import ir.ac.ut.joboonja.exceptions.ForbiddenException;
+import ir.ac.ut.joboonja.index.FeedCache;
+import ir.ac.ut.joboonja.index.ProjectStore;
+import ir.ac.ut.joboonja.models.CacheStats;
+import ir.ac.ut.joboonja.models.DatabaseStats;
+import ir.ac.ut.joboonja.utilities.Config;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+    /**
+     * Usernames allowed to see the admin endpoints, comma separated; nobody when empty.
+     */
+    private static final Set<String> ADMINS = new HashSet<>(Arrays.asList(Config.get("joboonja.admin.users", "").trim().split("\\s*,\\s*")));
+
+    @GetMapping("/database")
+    public DatabaseStats getDatabaseStats(@RequestAttribute("user") User user) {
+        checkAdmin(user);
+        return new DatabaseStats(
+            QueryStats.getAll(),
+            QueryRegistry.getStatementCacheHits(),
+            QueryRegistry.getStatementCacheMisses(),
+            QueryRegistry.getShapeHits(),
+            QueryRegistry.getShapeMisses(),
+            QueryCache.getStats()
+        );
+    }
+
+    @GetMapping("/caches")
+    public Map<String, CacheStats> getCacheStats(@RequestAttribute("user") User user) {
+        checkAdmin(user);
+        Map<String, CacheStats> caches = new LinkedHashMap<>();
+        caches.put("results", QueryCache.getStats());
+        caches.put("feeds", FeedCache.getStats());
+        caches.put("projects", ProjectStore.getStats());
+        return caches;
+    }
+
+    static void checkAdmin(User user) {
+        if (user == null || user.getUsername().isEmpty() || !ADMINS.contains(user.getUsername()))
+            throw new ForbiddenException("Access to admin endpoints is forbidden!");
+    }
+}
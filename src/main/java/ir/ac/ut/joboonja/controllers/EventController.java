@@ -0,0 +1,50 @@
+package ir.ac.ut.joboonja.controllers;
+
+import ir.ac.ut.joboonja.auth.JWTUtils;
+import ir.ac.ut.joboonja.entities.User;
+import ir.ac.ut.joboonja.events.EventHub;
+import ir.ac.ut.joboonja.exceptions.BadRequestException;
+import ir.ac.ut.joboonja.models.Token;
+import ir.ac.ut.joboonja.services.ProjectService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/events")
+public class EventController {
+
+    private static final int MAX_WATCHED_PROJECTS = 100;
+
+    /**
+     * Server-Sent Events for the user: results of auctions they bid on or watch ({@code project} params),
+     * being outbid, and new projects they're eligible for. EventSource can't send headers, so this
+     * endpoint also takes a stream token from {@code POST /events/token} as a {@code token} query param.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(
+        @RequestParam(name = "project", required = false) List<String> projectIds,
+        @RequestAttribute("user") User user
+    ) {
+        List<String> topics = new ArrayList<>();
+        topics.add(EventHub.userTopic(user.getId()));
+        if (projectIds != null) {
+            if (projectIds.size() > MAX_WATCHED_PROJECTS)
+                throw new BadRequestException("Too many projects to watch!");
+            for (String projectId: projectIds)
+                topics.add(EventHub.projectTopic(ProjectService.getProjectById(projectId, user).getId()));
+        }
+        return EventHub.subscribe(topics);
+    }
+
+    /**
+     * A token that opens the event stream only and expires in a minute, so the API token never goes in a URL.
+     */
+    @PostMapping("/token")
+    public Token createStreamToken(@RequestAttribute("user") User user) {
+        return new Token(JWTUtils.createStreamJWT(user.getUsername()));
+    }
+}
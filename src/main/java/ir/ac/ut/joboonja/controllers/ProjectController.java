@@ -1,13 +1,23 @@
 package ir.ac.ut.joboonja.controllers;
 
+import ir.ac.ut.joboonja.database.DataVersions;
 import ir.ac.ut.joboonja.entities.Bid;
 import ir.ac.ut.joboonja.entities.Project;
 import ir.ac.ut.joboonja.entities.User;
+import ir.ac.ut.joboonja.exceptions.BadRequestException;
 import ir.ac.ut.joboonja.models.BidAmount;
+import ir.ac.ut.joboonja.models.BidRank;
+import ir.ac.ut.joboonja.models.ProjectCursor;
+import ir.ac.ut.joboonja.models.ProjectMatches;
+import ir.ac.ut.joboonja.models.ProjectPage;
 import ir.ac.ut.joboonja.services.AuctionService;
 import ir.ac.ut.joboonja.services.ProjectService;
+import ir.ac.ut.joboonja.utilities.JsonStreamWriter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
@@ -15,15 +25,52 @@ import java.util.List;
 @RequestMapping("/project")
 public class ProjectController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Only cursor requests are capped; legacy pageNumber requests keep taking any size.
+     */
+    private static void checkPageSize(Integer pageSize) {
+        if (pageSize != null && (pageSize < 1 || pageSize > MAX_PAGE_SIZE))
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE + "!");
+    }
+
+    private static List<Project> withNextCursor(ProjectPage page, HttpServletResponse response) {
+        if (page.getNext() != null)
+            response.setHeader(NEXT_CURSOR_HEADER, page.getNext().encode());
+        return page.getProjects();
+    }
+
     @GetMapping
-    public List<Project> getProjects(
+    public void getProjects(
         @RequestParam(name = "pageNumber", required = false) Integer pageNumber,
         @RequestParam(name = "pageSize", required = false) Integer pageSize,
-        @RequestAttribute("user") User user
-    ) {
-        if (pageNumber != null && pageSize != null)
-            return ProjectService.getValidProjects(user, pageNumber, pageSize);
-        return ProjectService.getValidProjects(user);
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestAttribute("user") User user,
+        WebRequest webRequest,
+        HttpServletResponse response
+    ) throws IOException {
+        if (cursor != null)
+            checkPageSize(pageSize);
+        DataVersions.Tag tag = DataVersions.tag(DataVersions.PROJECTS, DataVersions.user(user.getId()));
+        if (webRequest.checkNotModified(tag.getEtag(), tag.getLastModified()))
+            return;
+        List<Project> page = null;
+        if (cursor != null) {
+            int size = pageSize == null ? DEFAULT_PAGE_SIZE : pageSize;
+            page = withNextCursor(ProjectService.getValidProjects(user, ProjectCursor.decode(cursor), size), response);
+        } else if (pageNumber != null && pageSize != null) {
+            page = ProjectService.getValidProjects(user, pageNumber, pageSize);
+        }
+        List<Project> projects = page;
+        JsonStreamWriter.writeArray(response, writer -> {
+            if (projects != null)
+                projects.forEach(writer::write);
+            else
+                ProjectService.streamValidProjects(user, writer::write);
+        });
     }
 
     @GetMapping("/{projectId}")
@@ -43,21 +90,45 @@ public class ProjectController {
         return AuctionService.hasUserBid(project, user);
     }
 
+    @GetMapping("/{projectId}/bid/rank")
+    public BidRank bidRank(@PathVariable("projectId") String projectId, @RequestAttribute("user") User user) {
+        Project project = ProjectService.getProjectById(projectId, user);
+        return AuctionService.getBidRank(project, user);
+    }
+
     @GetMapping("/{projectId}/auction")
     public User projectWinner(@PathVariable("projectId") String projectId, @RequestAttribute("user") User user){
         Project project = ProjectService.getProjectById(projectId, user);
         return AuctionService.getAuctionWinner(project);
     }
 
+    /**
+     * Every user the project's requirements match; for admins only, like the {@code /admin} endpoints.
+     */
+    @GetMapping("/{projectId}/matches")
+    public ProjectMatches projectMatches(@PathVariable("projectId") String projectId, @RequestAttribute("user") User user) {
+        AdminController.checkAdmin(user);
+        return ProjectService.getProjectMatches(projectId);
+    }
+
     @GetMapping("/search")
     public List<Project> searchProjects(
             @RequestParam(name = "filter", required = false) String filter,
             @RequestParam(name = "pageNumber", required = false) Integer pageNumber,
             @RequestParam(name = "pageSize", required = false) Integer pageSize,
-            @RequestAttribute("user") User user) {
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestAttribute("user") User user,
+            HttpServletResponse response) {
+        if (cursor != null)
+            checkPageSize(pageSize);
         if (filter == null || filter.isEmpty())
             return Collections.emptyList();
 
+        if (cursor != null) {
+            int size = pageSize == null ? DEFAULT_PAGE_SIZE : pageSize;
+            return withNextCursor(ProjectService.searchProjectsAfter(filter, ProjectCursor.decode(cursor), size, user), response);
+        }
+
         return ProjectService.searchProjectsPaginated(filter, pageNumber, pageSize, user);
     }
 }
@@ -1,19 +1,29 @@
 package ir.ac.ut.joboonja.controllers;
 
+import ir.ac.ut.joboonja.database.DataVersions;
 import ir.ac.ut.joboonja.entities.Skill;
 import ir.ac.ut.joboonja.services.SkillService;
+import ir.ac.ut.joboonja.utilities.JsonStreamWriter;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/skill")
 public class SkillController {
 
     @GetMapping
-    public List<Skill> getSkills() {
-        return SkillService.getAllSkills();
+    public void getSkills(WebRequest webRequest, HttpServletResponse response) throws IOException {
+        DataVersions.Tag tag = DataVersions.tag(DataVersions.SKILLS);
+        if (webRequest.checkNotModified(tag.getEtag(), tag.getLastModified()))
+            return;
+        JsonStreamWriter.writeArray(response, writer -> {
+            for (Skill skill: SkillService.getAllSkills())
+                writer.write(skill);
+        });
     }
 }
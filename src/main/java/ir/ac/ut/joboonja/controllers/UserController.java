@@ -1,14 +1,21 @@
 package ir.ac.ut.joboonja.controllers;
 
+import ir.ac.ut.joboonja.database.DataVersions;
 import ir.ac.ut.joboonja.entities.Endorse;
+import ir.ac.ut.joboonja.entities.Project;
 import ir.ac.ut.joboonja.entities.Skill;
 import ir.ac.ut.joboonja.entities.User;
 import ir.ac.ut.joboonja.models.EndorsableSkill;
 import ir.ac.ut.joboonja.models.EndorseRequest;
 import ir.ac.ut.joboonja.services.EndorseService;
+import ir.ac.ut.joboonja.services.ProjectService;
 import ir.ac.ut.joboonja.services.UserService;
+import ir.ac.ut.joboonja.utilities.JsonStreamWriter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
@@ -17,15 +24,32 @@ import java.util.List;
 public class UserController {
 
     @GetMapping
-    public List<User> getUsers(@RequestAttribute("user") User user) {
-        return UserService.getAllUsers(user);
+    public void getUsers(@RequestAttribute("user") User user, WebRequest webRequest, HttpServletResponse response) throws IOException {
+        // the list leaves out the requester, so each requester sees a different body
+        DataVersions.Tag tag = DataVersions.tag(DataVersions.USERS, DataVersions.user(user.getId()));
+        if (webRequest.checkNotModified(tag.getEtag(), tag.getLastModified()))
+            return;
+        JsonStreamWriter.writeArray(response, writer -> UserService.streamAllUsers(user, writer::write));
     }
 
     @GetMapping("/{username:.+}")
-    public User getUser(@PathVariable("username") String username) {
+    public User getUser(@PathVariable("username") String username, WebRequest webRequest) {
+        // the tag is read before the user it describes, so the body is never older than its tag; a user
+        // this node hasn't read yet has no id to tag by and is sent untagged
+        Integer userId = UserService.getKnownUserId(username);
+        if (userId != null) {
+            DataVersions.Tag tag = DataVersions.tag(DataVersions.user(userId));
+            if (webRequest.checkNotModified(tag.getEtag(), tag.getLastModified()))
+                return null;
+        }
         return UserService.getUserByUserName(username);
     }
 
+    @GetMapping("/{username:.+}/wins")
+    public List<Project> getPastWins(@PathVariable("username") String username) {
+        return ProjectService.getPastWins(UserService.getUserByUserName(username));
+    }
+
     @GetMapping("/{username:.+}/endorse")
     public List<EndorsableSkill> getEndorsableSkills(@PathVariable("username") String username, @RequestAttribute("user") User user) {
         User tempUser = UserService.getUserByUserName(username);
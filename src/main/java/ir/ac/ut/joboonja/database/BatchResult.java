@@ -0,0 +1,32 @@
+package ir.ac.ut.joboonja.database;
+
+public class BatchResult {
+    private int inserted;
+    private int skipped;
+
+    public BatchResult(int inserted, int skipped) {
+        this.inserted = inserted;
+        this.skipped = skipped;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(int inserted) {
+        this.inserted = inserted;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(int skipped) {
+        this.skipped = skipped;
+    }
+
+    @Override
+    public String toString() {
+        return inserted + " inserted, " + skipped + " skipped";
+    }
+}
@@ -0,0 +1,138 @@
+package ir.ac.ut.joboonja.database;
+
+import ir.ac.ut.joboonja.entities.DataVersion;
+import ir.ac.ut.joboonja.repositories.DataVersionRepository;
+import ir.ac.ut.joboonja.repositories.impl.DataVersionRepositoryImpl;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Change counters for the data sets clients poll, used as ETags and Last-Modified dates.
+ *
+ * Writers bump a data set when they change it. The counters live in the database and are bumped in the
+ * writer's transaction, so every node hands out the same tag for the same data. Nodes also poll them to learn
+ * what others changed.
+ *
+ * Tags are built from a copy of the counters kept in memory, so a conditional GET doesn't touch the database.
+ * A data set is read once, the first time it is tagged; after that the copy follows this node's bumps once
+ * they commit and, through {@link ir.ac.ut.joboonja.services.ChangeListener}, the other nodes' bumps.
+ */
+public class DataVersions {
+    public static final String SKILLS = "skills";
+    public static final String PROJECTS = "projects";
+    public static final String USERS = "users";
+    public static final String USER_PREFIX = "user:";
+    public static final String BIDS_PREFIX = "bids:";
+
+    private static DataVersionRepository dataVersionRepository = new DataVersionRepositoryImpl();
+    private static final ConcurrentHashMap<String, DataVersion> known = new ConcurrentHashMap<>();
+
+    public static class Tag {
+        private final String etag;
+        private final long lastModified;
+
+        Tag(String etag, long lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * Milliseconds since the epoch, -1 if none of the data sets has changed yet.
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    public static String user(Integer userId) {
+        return USER_PREFIX + userId;
+    }
+
+    public static String bids(String projectId) {
+        return BIDS_PREFIX + projectId;
+    }
+
+    public static void bump(String dataSet) {
+        dataVersionRepository.bump(dataSet);
+        UnitOfWork.afterCommit(() -> load(Collections.singletonList(dataSet), true));
+    }
+
+    public static void bump(Collection<String> dataSets) {
+        if (dataSets.isEmpty())
+            return;
+        dataVersionRepository.bump(dataSets);
+        List<String> bumped = new ArrayList<>(dataSets);
+        UnitOfWork.afterCommit(() -> load(bumped, true));
+    }
+
+    /**
+     * Deletes data sets that will never change again, e.g. the bids of archived projects, so the table
+     * doesn't keep a row for every project ever bid on.
+     */
+    public static void delete(List<String> dataSets) {
+        if (dataSets.isEmpty())
+            return;
+        dataVersionRepository.delete(dataSets);
+        UnitOfWork.afterCommit(() -> known.keySet().removeAll(dataSets));
+    }
+
+    public static void bumpUser(Integer userId) {
+        bump(user(userId));
+        bump(USERS);
+    }
+
+    /**
+     * The tag of the data sets, from memory; data sets never tagged before are read with one query.
+     */
+    public static Tag tag(String... dataSets) {
+        List<String> missing = new ArrayList<>();
+        for (String dataSet: dataSets)
+            if (!known.containsKey(dataSet))
+                missing.add(dataSet);
+        if (!missing.isEmpty())
+            load(missing, false);
+        StringBuilder etag = new StringBuilder("\"");
+        long lastModified = -1;
+        for (String dataSet: dataSets) {
+            DataVersion version = known.get(dataSet);
+            etag.append(etag.length() == 1 ? "" : "-").append(version.getCounter());
+            lastModified = Math.max(lastModified, version.getLastModified());
+        }
+        // the time tells apart counters that restarted with a new database
+        return new Tag(etag.append('.').append(Long.toString(lastModified, 36)).append('"').toString(), lastModified);
+    }
+
+    /**
+     * Data sets bumped within the last {@code windowMillis}, by any node.
+     */
+    public static List<DataVersion> changedWithin(long windowMillis) {
+        return dataVersionRepository.getChangedWithin(windowMillis);
+    }
+
+    /**
+     * Takes in versions read from the database; a counter never goes back.
+     */
+    public static void update(DataVersion version) {
+        known.merge(version.getDataSet(), version, (current, read) -> read.getCounter() >= current.getCounter() ? read : current);
+    }
+
+    private static void load(List<String> dataSets, boolean fromPrimary) {
+        List<DataVersion> versions = fromPrimary
+            ? UnitOfWork.readFromPrimary(() -> dataVersionRepository.getVersions(dataSets))
+            : UnitOfWork.execute(() -> dataVersionRepository.getVersions(dataSets));
+        Set<String> absent = new HashSet<>(dataSets);
+        for (DataVersion version: versions) {
+            update(version);
+            absent.remove(version.getDataSet());
+        }
+        for (String dataSet: absent)
+            known.putIfAbsent(dataSet, new DataVersion(dataSet, 0L, -1L));
+    }
+
+    private DataVersions() { }
+}
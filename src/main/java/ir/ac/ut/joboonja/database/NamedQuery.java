@@ -0,0 +1,45 @@
+package ir.ac.ut.joboonja.database;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class NamedQuery {
+    private String name;
+    private String sql;
+    private List<String> tables;
+    private boolean cacheable;
+
+    NamedQuery(String name, String sql, List<String> tables, boolean cacheable) {
+        this.name = name;
+        this.sql = sql;
+        this.tables = tables;
+        this.cacheable = cacheable;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Tables the query reads from, or for a write, the tables it modifies.
+     */
+    public List<String> getTables() {
+        return tables;
+    }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    public PreparedQuery bind(List<Object> parameters) {
+        return new PreparedQuery(name, sql, parameters, tables, cacheable);
+    }
+
+    public PreparedQuery bind(Object... parameters) {
+        return bind(Arrays.asList(parameters));
+    }
+}
@@ -1,14 +1,33 @@
 package ir.ac.ut.joboonja.database;
 
+import java.util.Collections;
 import java.util.List;
 
 public class PreparedQuery {
+    private String name;
     private String preparedSql;
     private List<Object> parameters;
+    private List<String> tables;
+    private boolean cacheable;
 
     public PreparedQuery(String preparedSql, List<Object> parameters) {
+        this(null, preparedSql, parameters, Collections.emptyList(), false);
+    }
+
+    public PreparedQuery(String name, String preparedSql, List<Object> parameters, List<String> tables, boolean cacheable) {
+        this.name = name;
         this.preparedSql = preparedSql;
         this.parameters = parameters;
+        this.tables = tables;
+        this.cacheable = cacheable;
+    }
+
+    public String getName() {
+        return name != null ? name : preparedSql;
+    }
+
+    public void setName(String name) {
+        this.name = name;
     }
 
     public String getPreparedSql() {
@@ -26,4 +45,12 @@ public class PreparedQuery {
     public void setParameters(List<Object> parameters) {
         this.parameters = parameters;
     }
+
+    public List<String> getTables() {
+        return tables;
+    }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
 }
@@ -0,0 +1,147 @@
+package ir.ac.ut.joboonja.database;
+
+import ir.ac.ut.joboonja.models.CacheStats;
+import ir.ac.ut.joboonja.utilities.Config;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of query results keyed by query name and parameters, bounded by {@code joboonja.cache.maxEntries}
+ * and {@code joboonja.cache.ttlMillis}.
+ *
+ * Every table has a version that writes bump; an entry remembers the versions of the tables it was read from,
+ * taken before the query ran, and is treated as a miss once any of them has moved on. A write with no declared
+ * tables bumps a global version that every entry depends on.
+ *
+ * Entries are only filled from the primary: a lagging replica could otherwise put back rows that a write
+ * has just replaced, after the write invalidated them. Callers must not change the values they get back.
+ */
+public class QueryCache {
+    private static final int MAX_ENTRIES = Config.getInt("joboonja.cache.maxEntries", 10000);
+    private static final long TTL_MILLIS = Config.getLong("joboonja.cache.ttlMillis", 60 * 1000);
+
+    private static final ConcurrentHashMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    private static final AtomicLong globalVersion = new AtomicLong();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    private static final AtomicLong invalidations = new AtomicLong();
+
+    private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() <= MAX_ENTRIES)
+                return false;
+            evictions.incrementAndGet();
+            return true;
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    public static <T> T get(PreparedQuery query, Supplier<T> loader) {
+        if (!query.isCacheable() || MAX_ENTRIES <= 0)
+            return loader.get();
+
+        Key key = new Key(query.getName(), query.getParameters());
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now && entry.isCurrent()) {
+                hits.incrementAndGet();
+                return (T) entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                invalidations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+
+        long[] versions = currentVersions(query.getTables());
+        T value = UnitOfWork.readFromPrimary(loader);
+        synchronized (entries) {
+            entries.put(key, new Entry(value, query.getTables(), versions, now + TTL_MILLIS));
+        }
+        return value;
+    }
+
+    public static void invalidate(Collection<String> tables) {
+        if (tables == null || tables.isEmpty()) {
+            globalVersion.incrementAndGet();
+            return;
+        }
+        for (String table: tables)
+            tableVersion(table).incrementAndGet();
+    }
+
+    public static CacheStats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), invalidations.get(), size, MAX_ENTRIES);
+    }
+
+    private static AtomicLong tableVersion(String table) {
+        return tableVersions.computeIfAbsent(table.toLowerCase(), t -> new AtomicLong());
+    }
+
+    private static long[] currentVersions(List<String> tables) {
+        long[] versions = new long[tables.size() + 1];
+        versions[0] = globalVersion.get();
+        for (int i = 0; i < tables.size(); i++)
+            versions[i + 1] = tableVersion(tables.get(i)).get();
+        return versions;
+    }
+
+    private static class Key {
+        private String name;
+        private List<Object> parameters;
+
+        Key(String name, List<Object> parameters) {
+            this.name = name;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key key = (Key) obj;
+            return name.equals(key.name) && parameters.equals(key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + parameters.hashCode();
+        }
+    }
+
+    private static class Entry {
+        private Object value;
+        private List<String> tables;
+        private long[] versions;
+        private long expiresAt;
+
+        Entry(Object value, List<String> tables, long[] versions, long expiresAt) {
+            this.value = value;
+            this.tables = tables;
+            this.versions = versions;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isCurrent() {
+            if (versions[0] != globalVersion.get())
+                return false;
+            for (int i = 0; i < tables.size(); i++)
+                if (versions[i + 1] != tableVersion(tables.get(i)).get())
+                    return false;
+            return true;
+        }
+    }
+
+    private QueryCache() { }
+}
@@ -0,0 +1,92 @@
+package ir.ac.ut.joboonja.database;
+
+import java.sql.Connection;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the SQL statements the repositories run, by name. Static statements are registered
+ * once at class load; dynamic ones are registered per shape through {@link #shape} so their SQL is
+ * built only the first time that shape is used. Each statement declares the tables it reads or writes,
+ * which is what {@link QueryCache} invalidates by.
+ *
+ * It also keeps hit and miss counts for statement preparation: the pool keeps prepared statements
+ * open per physical connection, so preparing a SQL string that connection has prepared before is a hit.
+ */
+public class QueryRegistry {
+    private static final ConcurrentHashMap<String, NamedQuery> queries = new ConcurrentHashMap<>();
+    private static final AtomicLong shapeHits = new AtomicLong();
+    private static final AtomicLong shapeMisses = new AtomicLong();
+
+    private static final Map<Connection, Set<String>> preparedStatements = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final AtomicLong statementHits = new AtomicLong();
+    private static final AtomicLong statementMisses = new AtomicLong();
+
+    public static NamedQuery register(String name, String sql, String... tables) {
+        return register(name, sql, false, tables);
+    }
+
+    public static NamedQuery registerCached(String name, String sql, String... tables) {
+        return register(name, sql, true, tables);
+    }
+
+    private static NamedQuery register(String name, String sql, boolean cacheable, String... tables) {
+        NamedQuery query = new NamedQuery(name, sql, Collections.unmodifiableList(Arrays.asList(tables)), cacheable);
+        NamedQuery registered = queries.putIfAbsent(name, query);
+        if (registered == null)
+            return query;
+        if (!registered.getSql().equals(sql))
+            throw new IllegalStateException("Query " + name + " is already registered with a different statement.");
+        return registered;
+    }
+
+    public static NamedQuery shape(String name, Supplier<String> sqlBuilder, String... tables) {
+        return shape(name, false, sqlBuilder, tables);
+    }
+
+    public static NamedQuery shape(String name, boolean cacheable, Supplier<String> sqlBuilder, String... tables) {
+        NamedQuery query = queries.get(name);
+        if (query != null) {
+            shapeHits.incrementAndGet();
+            return query;
+        }
+        shapeMisses.incrementAndGet();
+        return register(name, sqlBuilder.get(), cacheable, tables);
+    }
+
+    public static NamedQuery get(String name) {
+        return queries.get(name);
+    }
+
+    public static Collection<NamedQuery> getAll() {
+        return Collections.unmodifiableCollection(queries.values());
+    }
+
+    static void recordPrepare(Connection physicalConnection, String sql) {
+        Set<String> statements = preparedStatements.computeIfAbsent(physicalConnection, c -> ConcurrentHashMap.newKeySet());
+        if (statements.add(sql))
+            statementMisses.incrementAndGet();
+        else
+            statementHits.incrementAndGet();
+    }
+
+    public static long getShapeHits() {
+        return shapeHits.get();
+    }
+
+    public static long getShapeMisses() {
+        return shapeMisses.get();
+    }
+
+    public static long getStatementCacheHits() {
+        return statementHits.get();
+    }
+
+    public static long getStatementCacheMisses() {
+        return statementMisses.get();
+    }
+
+    private QueryRegistry() { }
+}
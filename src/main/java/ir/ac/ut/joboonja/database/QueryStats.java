@@ -0,0 +1,176 @@
+package ir.ac.ut.joboonja.database;
+
+import ir.ac.ut.joboonja.utilities.Config;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram, row count, connection wait and error count per named query.
+ * Executions slower than {@code joboonja.db.slowQueryMillis} are logged with the shape of their parameters.
+ */
+public class QueryStats {
+    private static final long SLOW_QUERY_NANOS = Config.getLong("joboonja.db.slowQueryMillis", 200) * 1000000L;
+    private static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+    private static final ConcurrentHashMap<String, QueryStats> allStats = new ConcurrentHashMap<>();
+
+    private String name;
+    private LongAdder executions = new LongAdder();
+    private LongAdder errors = new LongAdder();
+    private LongAdder rows = new LongAdder();
+    private LongAdder totalNanos = new LongAdder();
+    private LongAdder connectionWaitNanos = new LongAdder();
+    private AtomicLong maxNanos = new AtomicLong();
+    private AtomicLongArray histogram = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+
+    private QueryStats(String name) {
+        this.name = name;
+    }
+
+    public static Timer start(PreparedQuery query) {
+        return new Timer(query);
+    }
+
+    public static List<QueryStats> getAll() {
+        List<QueryStats> result = new ArrayList<>(allStats.values());
+        result.sort(Comparator.comparingLong((QueryStats stats) -> stats.totalNanos.sum()).reversed());
+        return result;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1e6;
+    }
+
+    public double getMeanMillis() {
+        long count = executions.sum();
+        return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    public double getMeanConnectionWaitMillis() {
+        long count = executions.sum();
+        return count == 0 ? 0 : connectionWaitNanos.sum() / 1e6 / count;
+    }
+
+    public long getP50Millis() {
+        return percentileMillis(0.50);
+    }
+
+    public long getP95Millis() {
+        return percentileMillis(0.95);
+    }
+
+    public long getP99Millis() {
+        return percentileMillis(0.99);
+    }
+
+    public Map<String, Long> getHistogram() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < histogram.length(); i++)
+            result.put(i < BUCKET_BOUNDS_MILLIS.length ? "<=" + BUCKET_BOUNDS_MILLIS[i] + "ms" : ">" + BUCKET_BOUNDS_MILLIS[i - 1] + "ms", histogram.get(i));
+        return result;
+    }
+
+    /**
+     * Upper bound of the histogram bucket holding the given percentile; -1 when it falls in the overflow bucket.
+     */
+    private long percentileMillis(double percentile) {
+        long count = 0;
+        for (int i = 0; i < histogram.length(); i++)
+            count += histogram.get(i);
+        if (count == 0)
+            return 0;
+        long target = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            seen += histogram.get(i);
+            if (seen >= target)
+                return BUCKET_BOUNDS_MILLIS[i];
+        }
+        return -1;
+    }
+
+    private void record(long connectionWait, long elapsed, long rowCount, boolean failed) {
+        executions.increment();
+        totalNanos.add(elapsed);
+        connectionWaitNanos.add(connectionWait);
+        rows.add(rowCount);
+        if (failed)
+            errors.increment();
+        maxNanos.accumulateAndGet(elapsed, Math::max);
+        long millis = elapsed / 1000000L;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MILLIS.length && millis > BUCKET_BOUNDS_MILLIS[bucket])
+            bucket++;
+        histogram.incrementAndGet(bucket);
+    }
+
+    private static String parameterShapes(List<Object> parameters) {
+        StringJoiner shapes = new StringJoiner(", ", "[", "]");
+        for (Object parameter: parameters) {
+            if (parameter == null)
+                shapes.add("null");
+            else if (parameter instanceof String)
+                shapes.add("String(" + ((String) parameter).length() + ")");
+            else
+                shapes.add(parameter.getClass().getSimpleName());
+        }
+        return shapes.toString();
+    }
+
+    public static class Timer {
+        private PreparedQuery query;
+        private long startedAt = System.nanoTime();
+        private long connectedAt = startedAt;
+        private long rowCount = 0;
+        private boolean failed = false;
+
+        private Timer(PreparedQuery query) {
+            this.query = query;
+        }
+
+        public void connected() {
+            connectedAt = System.nanoTime();
+        }
+
+        public void rows(long rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        public void failed() {
+            failed = true;
+        }
+
+        public void stop() {
+            long finishedAt = System.nanoTime();
+            long elapsed = finishedAt - startedAt;
+            allStats.computeIfAbsent(query.getName(), QueryStats::new)
+                .record(connectedAt - startedAt, finishedAt - connectedAt, rowCount, failed);
+            if (elapsed >= SLOW_QUERY_NANOS)
+                System.err.println(String.format("slow query %s took %.1f ms (%d rows, %.1f ms waiting for a connection) with parameters %s",
+                    query.getName(), elapsed / 1e6, rowCount, (connectedAt - startedAt) / 1e6, parameterShapes(query.getParameters())));
+        }
+    }
+}
@@ -1,25 +1,244 @@
 package ir.ac.ut.joboonja.database;
 
+import ir.ac.ut.joboonja.utilities.Config;
 import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.dbcp.DelegatingConnection;
 
-import java.sql.Connection;
-import java.sql.SQLException;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Connection pools for the primary database and its read replicas. Writes always use the primary;
+ * reads are spread round-robin over the replicas listed in {@code joboonja.db.replicas} (comma separated
+ * JDBC URLs) and fall back to the primary when there are none or all of them are ejected.
+ *
+ * A replica is ejected for {@code joboonja.db.replicaEjectMillis} when it fails to hand out a connection,
+ * when a read on it loses its connection, or when it lags. Lag is checked every
+ * {@code joboonja.db.replicaCheckMillis} by writing a heartbeat row on the primary and reading it back on
+ * each replica; a replica whose copy is missing or older than {@code joboonja.db.replicaMaxLagMillis} lags.
+ */
 public class ResourcePool {
-    private static BasicDataSource ds = new BasicDataSource();
+    private static final String CONNECTION_OPTIONS = "useUnicode=yes&characterEncoding=UTF-8&useCursorFetch=true&useServerPrepStmts=true";
+    private static final long REPLICA_EJECT_MILLIS = Config.getLong("joboonja.db.replicaEjectMillis", 30 * 1000);
+    private static final long REPLICA_CHECK_MILLIS = Config.getLong("joboonja.db.replicaCheckMillis", 5 * 1000);
+    private static final long REPLICA_MAX_LAG_MILLIS = Config.getLong("joboonja.db.replicaMaxLagMillis", 5 * 1000);
+    private static final long READ_YOUR_WRITES_MILLIS = Config.getLong("joboonja.db.readYourWritesMillis", 5 * 1000);
+
+    /**
+     * The database clock in epoch millis, so that times written by different nodes are comparable.
+     */
+    public static final String NOW_MILLIS = "ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000.0)";
+
+    private static final String WRITE_HEARTBEAT = "INSERT INTO ReplicationHeartbeat (id, beatAt) VALUES (1, " + NOW_MILLIS + ") " +
+            "ON DUPLICATE KEY UPDATE beatAt = VALUES(beatAt)";
+    private static final String READ_LAG = "SELECT " + NOW_MILLIS + " - beatAt FROM ReplicationHeartbeat WHERE id = 1";
+
+    private static BasicDataSource ds = createDataSource(Config.get("joboonja.db.url", "jdbc:mysql://database:3306/IE"));
+    private static List<Replica> replicas = new ArrayList<>();
+    private static AtomicInteger nextReplica = new AtomicInteger();
+    private static ConcurrentHashMap<Object, Long> recentWriters = new ConcurrentHashMap<>();
+    private static Map<Connection, Replica> replicaConnections = Collections.synchronizedMap(new WeakHashMap<>());
 
     static {
-        ds.setUrl("jdbc:mysql://database:3306/IE?useUnicode=yes&characterEncoding=UTF-8");
-        ds.setUsername("root");
-        ds.setPassword("mypassword");
-        ds.setMinIdle(100);
-        ds.setMaxIdle(1000);
-        ds.setMaxOpenPreparedStatements(1000);
+        for (String url: Config.get("joboonja.db.replicas", "").split(",")) {
+            if (!url.trim().isEmpty())
+                replicas.add(new Replica(url.trim()));
+        }
+        if (!replicas.isEmpty() && REPLICA_CHECK_MILLIS > 0) {
+            Thread checker = new Thread(ResourcePool::runReplicaChecks, "replica-health");
+            checker.setDaemon(true);
+            checker.start();
+        }
+    }
+
+    /**
+     * Adds each connection option that a MySQL {@code url} doesn't already set; other URLs are left alone.
+     */
+    static String withConnectionOptions(String url) {
+        if (!url.startsWith("jdbc:mysql:"))
+            return url;
+        int queryStart = url.indexOf('?');
+        Set<String> present = new HashSet<>();
+        if (queryStart >= 0) {
+            for (String option: url.substring(queryStart + 1).split("&"))
+                present.add(option.split("=", 2)[0]);
+        }
+        StringBuilder merged = new StringBuilder(url);
+        boolean needsSeparator = queryStart >= 0 && !url.endsWith("?") && !url.endsWith("&");
+        if (queryStart < 0)
+            merged.append('?');
+        for (String option: CONNECTION_OPTIONS.split("&")) {
+            if (present.contains(option.split("=", 2)[0]))
+                continue;
+            if (needsSeparator)
+                merged.append('&');
+            merged.append(option);
+            needsSeparator = true;
+        }
+        return merged.toString();
+    }
+
+    private static BasicDataSource createDataSource(String url) {
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setUrl(withConnectionOptions(url));
+        dataSource.setUsername(Config.get("joboonja.db.username", "root"));
+        dataSource.setPassword(Config.get("joboonja.db.password", "mypassword"));
+        dataSource.setMinIdle(100);
+        dataSource.setMaxIdle(1000);
+        dataSource.setPoolPreparedStatements(true);
+        dataSource.setMaxOpenPreparedStatements(1000);
+        dataSource.setAccessToUnderlyingConnectionAllowed(true);
+        return dataSource;
     }
 
     public static Connection getConnection() throws SQLException {
         return ds.getConnection();
     }
 
+    public static Connection getReadConnection() throws SQLException {
+        int count = replicas.size();
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), count));
+            long now = System.currentTimeMillis();
+            if (replica.ejectedUntil > now)
+                continue;
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replicaConnections.put(connection, replica);
+                return connection;
+            } catch (SQLException e) {
+                eject(replica, e.getMessage());
+            }
+        }
+        return getConnection();
+    }
+
+    /**
+     * Ejects the replica {@code connection} came from when a read on it failed for a connection-level
+     * reason; errors in the query itself would fail on any database and don't count against the replica.
+     */
+    public static void readFailed(Connection connection, SQLException cause) {
+        if (connection == null || !isConnectionFailure(cause))
+            return;
+        Replica replica = replicaConnections.remove(connection);
+        if (replica != null)
+            eject(replica, cause.getMessage());
+    }
+
+    private static boolean isConnectionFailure(SQLException e) {
+        return e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException ||
+                e instanceof SQLRecoverableException || (e.getSQLState() != null && e.getSQLState().startsWith("08"));
+    }
+
+    /**
+     * Writes the heartbeat on the primary, then ejects each replica that can't be read or lags behind it.
+     */
+    public static void checkReplicas() {
+        try (Connection connection = getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate(WRITE_HEARTBEAT);
+        } catch (SQLException e) {
+            System.err.println("could not write the replication heartbeat: " + e.getMessage());
+            return;
+        }
+        for (Replica replica: replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(READ_LAG)) {
+                if (!resultSet.next())
+                    eject(replica, "no replication heartbeat yet");
+                else if (resultSet.getLong(1) > REPLICA_MAX_LAG_MILLIS)
+                    eject(replica, "lagging by " + resultSet.getLong(1) + "ms");
+            } catch (SQLException e) {
+                eject(replica, e.getMessage());
+            }
+        }
+    }
+
+    public static boolean isEjected(String replicaUrl) {
+        for (Replica replica: replicas) {
+            if (replica.url.equals(replicaUrl))
+                return replica.ejectedUntil > System.currentTimeMillis();
+        }
+        return false;
+    }
+
+    private static void eject(Replica replica, String reason) {
+        replica.ejectedUntil = System.currentTimeMillis() + REPLICA_EJECT_MILLIS;
+        System.err.println("ejected replica " + replica.url + ": " + reason);
+    }
+
+    private static void runReplicaChecks() {
+        while (true) {
+            try {
+                Thread.sleep(REPLICA_CHECK_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            checkReplicas();
+        }
+    }
+
+    public static String getCreateHeartbeatScript() {
+        return "create table if not exists ReplicationHeartbeat\n" +
+                "(\n" +
+                "\tid integer not null\n" +
+                "\t\tprimary key,\n" +
+                "\tbeatAt bigint not null\n" +
+                ");";
+    }
+
+    /**
+     * Remembers that {@code writer} (e.g. a username) just wrote, so its reads stay on the primary
+     * for {@code joboonja.db.readYourWritesMillis} and never observe replication lag.
+     */
+    public static void recordWrite(Object writer) {
+        if (replicas.isEmpty())
+            return;
+        long now = System.currentTimeMillis();
+        recentWriters.put(writer, now);
+        if (recentWriters.size() > 10000)
+            recentWriters.values().removeIf(writtenAt -> now - writtenAt > READ_YOUR_WRITES_MILLIS);
+    }
+
+    public static boolean isRecentWriter(Object writer) {
+        Long writtenAt = recentWriters.get(writer);
+        return writtenAt != null && System.currentTimeMillis() - writtenAt <= READ_YOUR_WRITES_MILLIS;
+    }
+
+    public static boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * Prepares through the pool's per-connection statement cache, so a server-side statement is
+     * only prepared the first time each physical connection sees its SQL.
+     */
+    public static PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+        QueryRegistry.recordPrepare(physicalConnection(connection), sql);
+        return connection.prepareStatement(sql);
+    }
+
+    private static Connection physicalConnection(Connection connection) {
+        if (connection instanceof DelegatingConnection) {
+            Connection innermost = ((DelegatingConnection) connection).getInnermostDelegate();
+            if (innermost != null)
+                return innermost;
+        }
+        return connection;
+    }
+
+    private static class Replica {
+        private String url;
+        private BasicDataSource dataSource;
+        private volatile long ejectedUntil = 0;
+
+        Replica(String url) {
+            this.url = url;
+            this.dataSource = createDataSource(url);
+        }
+    }
+
     private ResourcePool(){ }
 }
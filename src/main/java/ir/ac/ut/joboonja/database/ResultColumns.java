@@ -0,0 +1,30 @@
+package ir.ac.ut.joboonja.database;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Column label to index lookup for one result shape, resolved once when a {@link RowMapper} is compiled.
+ * Like {@code ResultSet.findColumn}, labels are case-insensitive and the first duplicate label wins.
+ */
+public class ResultColumns {
+    private Map<String, Integer> indexes = new HashMap<>();
+
+    public ResultColumns(ResultSetMetaData metaData) throws SQLException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++)
+            indexes.putIfAbsent(metaData.getColumnLabel(i).toLowerCase(), i);
+    }
+
+    public boolean contains(String label) {
+        return indexes.containsKey(label.toLowerCase());
+    }
+
+    public int indexOf(String label) throws SQLException {
+        Integer index = indexes.get(label.toLowerCase());
+        if (index == null)
+            throw new SQLException("Column '" + label + "' not found.");
+        return index;
+    }
+}
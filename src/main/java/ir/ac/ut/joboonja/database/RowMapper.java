@@ -0,0 +1,9 @@
+package ir.ac.ut.joboonja.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface RowMapper<E> {
+    E map(ResultSet resultSet) throws SQLException;
+}
@@ -3,9 +3,15 @@ package ir.ac.ut.joboonja.database;
 import ir.ac.ut.joboonja.client.HttpClient;
 import ir.ac.ut.joboonja.entities.Project;
 import ir.ac.ut.joboonja.entities.Skill;
+import ir.ac.ut.joboonja.events.EventHub;
+import ir.ac.ut.joboonja.index.FeedCache;
+import ir.ac.ut.joboonja.models.ProjectEvent;
 import ir.ac.ut.joboonja.repositories.impl.*;
+import ir.ac.ut.joboonja.services.AuctionService;
+import ir.ac.ut.joboonja.services.ClusterNode;
 import ir.ac.ut.joboonja.services.ProjectService;
 import ir.ac.ut.joboonja.services.SkillService;
+import ir.ac.ut.joboonja.services.UserService;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -30,7 +36,26 @@ public class SchemaManager {
             ProjectRepositoryImpl.getCreateProjectSkillScript(),
             EndorseRepositoryImpl.getCreateScript(),
             AuctionRepositoryImpl.getCreateScript(),
-            AuctionRepositoryImpl.getCreateAuctionScript()
+            AuctionRepositoryImpl.getCreateAuctionScript(),
+            ProjectRepositoryImpl.getCreateArchiveScript(),
+            ProjectRepositoryImpl.getCreateProjectSkillArchiveScript(),
+            AuctionRepositoryImpl.getCreateBidArchiveScript(),
+            AuctionRepositoryImpl.getCreateAuctionArchiveScript(),
+            ResourcePool.getCreateHeartbeatScript(),
+            ClusterRepositoryImpl.getCreateScript(),
+            ClusterRepositoryImpl.getCreateJobLeaseScript(),
+            DataVersionRepositoryImpl.getCreateScript()
+        )
+    );
+
+    private static final int DUPLICATE_KEY_NAME = 1061;
+    private static final String SYNC_LEASE = "sync";
+
+    private static List<String> indexSQLScripts = new ArrayList<>(
+        Arrays.asList(
+            ProjectRepositoryImpl.getCreateCreationDateIndexScript(),
+            ProjectRepositoryImpl.getCreateDeadlineIndexScript(),
+            DataVersionRepositoryImpl.getCreateLastModifiedIndexScript()
         )
     );
 
@@ -47,21 +72,70 @@ public class SchemaManager {
         } catch (SQLException | ClassNotFoundException e) {
             e.printStackTrace();
         }
+        createIndexes();
+    }
+
+    private static void createIndexes() {
+        for (String index: indexSQLScripts) {
+            try (Connection connection = ResourcePool.getConnection(); Statement statement = connection.createStatement()) {
+                statement.executeUpdate(index);
+            } catch (SQLException e) {
+                if (e.getErrorCode() != DUPLICATE_KEY_NAME)
+                    e.printStackTrace();
+            }
+        }
     }
 
+    /**
+     * Only the node holding the sync lease fetches the remote data; the others pick up what it synced
+     * from the database.
+     */
     @Scheduled(fixedDelay = 1000*60*5)
     public static void syncData() {
+        if (ClusterNode.local().acquireLease(SYNC_LEASE))
+            UnitOfWork.execute(SchemaManager::syncRemoteData);
+        else
+            UnitOfWork.execute(SchemaManager::refreshLocalData);
+        UnitOfWork.execute(ProjectService::removeRecentlyArchivedProjects);
+    }
+
+    private static void refreshLocalData() {
+        List<Project> newProjects = ProjectService.refreshProjectIndexes();
+        matchNewProjects(newProjects);
+        AuctionService.scheduleAuctions(newProjects);
+        if (!newProjects.isEmpty())
+            DataVersions.bump(DataVersions.PROJECTS);
+        System.out.println("refreshed " + newProjects.size() + " projects synced by another node ...");
+    }
+
+    private static void syncRemoteData() {
         System.out.println("syncing database ...");
         List<Skill> skills = HttpClient.fetchAllSkills();
-        for(Skill skill:skills) {
-            SkillService.insertSkill(skill);
-        }
-        System.out.println("synced all skills ...");
-        List<Project> projects = HttpClient.fetchAllProjects();
-        for(Project project:projects){
-            ProjectService.insertProject(project);
-        }
-        System.out.println("synced all projects ...");
+        BatchResult skillsResult = SkillService.insertSkills(skills);
+        System.out.println("synced all skills: " + skillsResult + " ...");
+        List<Project> projects = ProjectService.filterArchivedProjects(HttpClient.fetchAllProjects());
+        List<Project> newProjects = ProjectService.filterNewProjects(projects);
+        BatchResult projectsResult = ProjectService.insertProjects(projects);
+        System.out.println("synced all projects: " + projectsResult + " ...");
+        matchNewProjects(newProjects);
+        AuctionService.scheduleAuctions(newProjects);
+        if (!newProjects.isEmpty())
+            DataVersions.bump(DataVersions.PROJECTS);
         System.out.println("finished syncing database ...");
     }
+
+    private static void matchNewProjects(List<Project> newProjects) {
+        long matches = 0;
+        for (Project project: newProjects) {
+            List<Integer> users = UserService.getEligibleUserIds(project.getSkills());
+            FeedCache.invalidate(users);
+            List<String> topics = new ArrayList<>(users.size());
+            for (Integer user: users)
+                topics.add(EventHub.userTopic(user));
+            EventHub.publish(EventHub.PROJECT_MATCHED, new ProjectEvent(project.getId()), topics);
+            matches += users.size();
+        }
+        if (!newProjects.isEmpty())
+            System.out.println("matched " + newProjects.size() + " new projects to " + matches + " users ...");
+    }
 }
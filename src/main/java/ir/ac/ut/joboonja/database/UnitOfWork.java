@@ -0,0 +1,246 @@
+package ir.ac.ut.joboonja.database;
+
+import ir.ac.ut.joboonja.exceptions.BadRequestException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Binds one pooled connection (and optionally one transaction) to the current thread
+ * so that every repository call made inside a request or a service operation shares it.
+ * Units of work nest: only the outermost {@link #end()} returns the connection to the pool
+ * and only the outermost transactional call commits or rolls back.
+ *
+ * Reads borrow a separate replica connection until the unit of work writes, opens a transaction,
+ * or belongs to a writer that wrote within the read-your-writes window; from then on they use the primary.
+ * {@link #readFromPrimary} forces primary reads for one piece of work, e.g. filling {@link QueryCache}.
+ */
+public class UnitOfWork {
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+    private Connection connection;
+    private Connection readConnection;
+    private Object writer;
+    private boolean hasWritten = false;
+    private Set<String> writtenTables = new HashSet<>();
+    private List<Runnable> commitActions = new ArrayList<>();
+    private int depth = 0;
+    private int primaryReads = 0;
+    private boolean inTransaction = false;
+
+    private UnitOfWork() { }
+
+    public static void begin() {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork == null) {
+            unitOfWork = new UnitOfWork();
+            current.set(unitOfWork);
+        }
+        unitOfWork.depth++;
+    }
+
+    public static void end() {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork == null)
+            return;
+        unitOfWork.depth--;
+        if (unitOfWork.depth > 0)
+            return;
+        current.remove();
+        unitOfWork.close();
+    }
+
+    public static void execute(Runnable work) {
+        begin();
+        try {
+            work.run();
+        } finally {
+            end();
+        }
+    }
+
+    public static <T> T execute(Supplier<T> work) {
+        begin();
+        try {
+            return work.get();
+        } finally {
+            end();
+        }
+    }
+
+    public static void executeInTransaction(Runnable work) {
+        executeInTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <T> T executeInTransaction(Supplier<T> work) {
+        begin();
+        UnitOfWork unitOfWork = current.get();
+        boolean owner = !unitOfWork.inTransaction;
+        try {
+            if (owner)
+                unitOfWork.startTransaction();
+            T result = work.get();
+            if (owner)
+                unitOfWork.commit();
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (owner)
+                unitOfWork.rollback();
+            throw e;
+        } finally {
+            end();
+        }
+    }
+
+    public static <T> T readFromPrimary(Supplier<T> work) {
+        begin();
+        UnitOfWork unitOfWork = current.get();
+        unitOfWork.primaryReads++;
+        try {
+            return work.get();
+        } finally {
+            unitOfWork.primaryReads--;
+            end();
+        }
+    }
+
+    /**
+     * Identifies who the current unit of work acts for, so it reads from the primary for a
+     * short while after that writer's own writes.
+     */
+    public static void setWriter(Object writer) {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork != null)
+            unitOfWork.writer = writer;
+    }
+
+    public static Connection getConnection() throws SQLException {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork == null)
+            return ResourcePool.getConnection();
+        if (unitOfWork.connection == null)
+            unitOfWork.connection = ResourcePool.getConnection();
+        return unitOfWork.connection;
+    }
+
+    public static Connection getReadConnection() throws SQLException {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork == null)
+            return ResourcePool.getReadConnection();
+        if (unitOfWork.usesPrimaryForReads())
+            return getConnection();
+        if (unitOfWork.readConnection == null)
+            unitOfWork.readConnection = ResourcePool.getReadConnection();
+        return unitOfWork.readConnection;
+    }
+
+    /**
+     * Notes a write to {@code tables}. Inside a transaction the tables are invalidated in {@link QueryCache}
+     * again on commit, since results read before then may have been cached against the old rows.
+     */
+    public static void recordWrite(Collection<String> tables) {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork == null)
+            return;
+        unitOfWork.hasWritten = true;
+        if (unitOfWork.inTransaction)
+            unitOfWork.writtenTables.addAll(tables);
+        if (unitOfWork.writer != null)
+            ResourcePool.recordWrite(unitOfWork.writer);
+    }
+
+    /**
+     * Runs {@code action} once the current write is durable: after the transaction commits (and its tables
+     * are invalidated), or right away outside a transaction. Meant for in-memory state that mirrors the rows.
+     */
+    public static void afterCommit(Runnable action) {
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork != null && unitOfWork.inTransaction)
+            unitOfWork.commitActions.add(action);
+        else
+            action.run();
+    }
+
+    public static void releaseConnection(Connection connection) {
+        if (connection == null)
+            return;
+        UnitOfWork unitOfWork = current.get();
+        if (unitOfWork != null && (unitOfWork.connection == connection || unitOfWork.readConnection == connection))
+            return;
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean usesPrimaryForReads() {
+        return primaryReads > 0 || inTransaction || hasWritten || !ResourcePool.hasReplicas() ||
+            (writer != null && ResourcePool.isRecentWriter(writer));
+    }
+
+    private void startTransaction() {
+        try {
+            getConnection().setAutoCommit(false);
+            inTransaction = true;
+        } catch (SQLException e) {
+            throw new BadRequestException("Something is wrong in db: " + e.getMessage());
+        }
+    }
+
+    private void commit() {
+        try {
+            connection.commit();
+            connection.setAutoCommit(true);
+            inTransaction = false;
+            if (!writtenTables.isEmpty()) {
+                QueryCache.invalidate(writtenTables);
+                writtenTables.clear();
+            }
+            for (Runnable action: commitActions)
+                action.run();
+            commitActions.clear();
+        } catch (SQLException e) {
+            throw new BadRequestException("Something is wrong in db: " + e.getMessage());
+        }
+    }
+
+    private void rollback() {
+        if (!inTransaction)
+            return;
+        inTransaction = false;
+        writtenTables.clear();
+        commitActions.clear();
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void close() {
+        if (readConnection != null) {
+            try {
+                readConnection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            readConnection = null;
+        }
+        if (connection == null)
+            return;
+        rollback();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        connection = null;
+    }
+}
@@ -0,0 +1,37 @@
+package ir.ac.ut.joboonja.entities;
+
+public class DataVersion {
+    private String dataSet;
+    private Long counter;
+    private Long lastModified;
+
+    public DataVersion(String dataSet, Long counter, Long lastModified) {
+        this.dataSet = dataSet;
+        this.counter = counter;
+        this.lastModified = lastModified;
+    }
+
+    public String getDataSet() {
+        return dataSet;
+    }
+
+    public void setDataSet(String dataSet) {
+        this.dataSet = dataSet;
+    }
+
+    public Long getCounter() {
+        return counter;
+    }
+
+    public void setCounter(Long counter) {
+        this.counter = counter;
+    }
+
+    public Long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Long lastModified) {
+        this.lastModified = lastModified;
+    }
+}
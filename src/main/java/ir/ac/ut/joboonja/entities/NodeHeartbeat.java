@@ -0,0 +1,27 @@
+package ir.ac.ut.joboonja.entities;
+
+public class NodeHeartbeat {
+    private String nodeId;
+    private Long lastSeen;
+
+    public NodeHeartbeat(String nodeId, Long lastSeen) {
+        this.nodeId = nodeId;
+        this.lastSeen = lastSeen;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Long getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(Long lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+}
@@ -0,0 +1,177 @@
+package ir.ac.ut.joboonja.events;
+
+import ir.ac.ut.joboonja.utilities.Config;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans events out to Server-Sent Events connections. A connection subscribes to topics, e.g. its user and
+ * the projects it watches. Publishing never blocks: the event is offered to each subscriber's bounded
+ * buffer ({@code joboonja.events.bufferSize}) and a small pool of sender threads writes the buffers out.
+ * A subscriber whose buffer is full has fallen behind and is disconnected; its client reconnects and
+ * re-reads the current state. Idle connections get a comment every {@code joboonja.events.pingMillis}
+ * so that dead ones are noticed.
+ *
+ * Events are only delivered to connections on the node that publishes them.
+ */
+public class EventHub {
+    public static final String AUCTION_DECIDED = "auction";
+    public static final String OUTBID = "outbid";
+    public static final String PROJECT_MATCHED = "match";
+
+    private static final int BUFFER_SIZE = Config.getInt("joboonja.events.bufferSize", 64);
+    private static final long TIMEOUT_MILLIS = Config.getLong("joboonja.events.timeoutMillis", 30 * 60 * 1000);
+    private static final long PING_MILLIS = Config.getLong("joboonja.events.pingMillis", 25 * 1000);
+
+    private static final ConcurrentHashMap<String, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+    private static final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private static final ExecutorService senders = Executors.newFixedThreadPool(
+        Config.getInt("joboonja.events.senders", 2), daemon("event-sender"));
+    private static final ScheduledExecutorService pinger = Executors.newSingleThreadScheduledExecutor(daemon("event-pinger"));
+
+    static {
+        pinger.scheduleWithFixedDelay(EventHub::ping, PING_MILLIS, PING_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static class Event {
+        private static final Event PING = new Event(null, null);
+
+        final String type;
+        final Object data;
+
+        Event(String type, Object data) {
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+    private static class Subscriber {
+        final SseEmitter emitter = new SseEmitter(TIMEOUT_MILLIS);
+        final List<String> topics;
+        final BlockingQueue<Event> buffer = new ArrayBlockingQueue<>(BUFFER_SIZE);
+        final AtomicBoolean sending = new AtomicBoolean();
+        volatile boolean closed;
+
+        Subscriber(List<String> topics) {
+            this.topics = topics;
+        }
+    }
+
+    public static String userTopic(Integer userId) {
+        return "user:" + userId;
+    }
+
+    public static String projectTopic(String projectId) {
+        return "project:" + projectId;
+    }
+
+    public static SseEmitter subscribe(List<String> topicNames) {
+        Subscriber subscriber = new Subscriber(topicNames);
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        for (String topic: topicNames)
+            topics.compute(topic, (name, subscribed) -> {
+                if (subscribed == null)
+                    subscribed = ConcurrentHashMap.newKeySet();
+                subscribed.add(subscriber);
+                return subscribed;
+            });
+        return subscriber.emitter;
+    }
+
+    /**
+     * Queues the event for every subscriber of any of {@code topicNames}, once per subscriber.
+     */
+    public static void publish(String type, Object data, Collection<String> topicNames) {
+        Set<Subscriber> targets = new HashSet<>();
+        for (String topic: topicNames) {
+            Set<Subscriber> subscribed = topics.get(topic);
+            if (subscribed != null)
+                targets.addAll(subscribed);
+        }
+        Event event = new Event(type, data);
+        for (Subscriber subscriber: targets)
+            enqueue(subscriber, event);
+    }
+
+    public static void publish(String type, Object data, String topic) {
+        publish(type, data, Collections.singletonList(topic));
+    }
+
+    public static int size() {
+        return subscribers.size();
+    }
+
+    private static void enqueue(Subscriber subscriber, Event event) {
+        if (subscriber.closed)
+            return;
+        if (!subscriber.buffer.offer(event)) {
+            close(subscriber);
+            return;
+        }
+        if (subscriber.sending.compareAndSet(false, true))
+            senders.execute(() -> send(subscriber));
+    }
+
+    private static void send(Subscriber subscriber) {
+        try {
+            Event event;
+            while (!subscriber.closed && (event = subscriber.buffer.poll()) != null) {
+                if (event == Event.PING)
+                    subscriber.emitter.send(SseEmitter.event().comment("ping"));
+                else
+                    subscriber.emitter.send(SseEmitter.event().name(event.type).data(event.data, MediaType.APPLICATION_JSON));
+            }
+        } catch (IOException | IllegalStateException e) {
+            close(subscriber);
+        } finally {
+            subscriber.sending.set(false);
+        }
+        if (!subscriber.closed && !subscriber.buffer.isEmpty() && subscriber.sending.compareAndSet(false, true))
+            senders.execute(() -> send(subscriber));
+    }
+
+    private static void ping() {
+        for (Subscriber subscriber: subscribers)
+            if (subscriber.buffer.isEmpty())
+                enqueue(subscriber, Event.PING);
+    }
+
+    private static void close(Subscriber subscriber) {
+        if (subscriber.closed)
+            return;
+        subscriber.closed = true;
+        unsubscribe(subscriber);
+        try {
+            subscriber.emitter.complete();
+        } catch (IllegalStateException e) {
+            // already completed by the container
+        }
+    }
+
+    private static void unsubscribe(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+        for (String topic: subscriber.topics)
+            topics.computeIfPresent(topic, (name, subscribed) -> {
+                subscribed.remove(subscriber);
+                return subscribed.isEmpty() ? null : subscribed;
+            });
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private EventHub() { }
+}
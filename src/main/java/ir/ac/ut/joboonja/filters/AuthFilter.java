@@ -1,6 +1,7 @@
 package ir.ac.ut.joboonja.filters;
 
 import ir.ac.ut.joboonja.auth.JWTUtils;
+import ir.ac.ut.joboonja.database.UnitOfWork;
 import ir.ac.ut.joboonja.entities.User;
 import ir.ac.ut.joboonja.services.UserService;
 import org.springframework.web.context.support.SpringBeanAutowiringSupport;
@@ -22,6 +23,10 @@ public class AuthFilter implements Filter {
         HttpServletResponse response = (HttpServletResponse) servletResponse;
         if (!request.getRequestURI().contains("auth")) {
             String token = request.getHeader("Authorization");
+            // EventSource can't set headers, so the event stream takes a stream token in the query instead
+            boolean streamToken = token == null && request.getRequestURI().endsWith("/events");
+            if (streamToken)
+                token = request.getParameter("token");
             if (token == null) {
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 response.setContentType("text/plain");
@@ -29,13 +34,14 @@ public class AuthFilter implements Filter {
                 writer.print("Unauthorized!");
             }
             else {
-                String username = JWTUtils.verifyJWT(token);
+                String username = streamToken ? JWTUtils.verifyStreamJWT(token) : JWTUtils.verifyJWT(token);
                 if (username == null) {
                     response.setStatus(HttpServletResponse.SC_FORBIDDEN);
                     response.setContentType("text/plain");
                     PrintWriter writer = response.getWriter();
                     writer.print("Access denied!");
                 } else {
+                    UnitOfWork.setWriter(username);
                     User user = UserService.getUserByUserName(username);
                     request.setAttribute("user", user);
                     chain.doFilter(request, response);
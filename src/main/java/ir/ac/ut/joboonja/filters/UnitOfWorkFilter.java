@@ -0,0 +1,21 @@
+package ir.ac.ut.joboonja.filters;
+
+import ir.ac.ut.joboonja.database.UnitOfWork;
+
+import javax.servlet.*;
+import java.io.IOException;
+
+public class UnitOfWorkFilter implements Filter {
+
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+
+        // every repository call made while serving this request shares one pooled connection
+        UnitOfWork.begin();
+        try {
+            chain.doFilter(servletRequest, servletResponse);
+        } finally {
+            UnitOfWork.end();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package ir.ac.ut.joboonja.index;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bid rankings of the open auctions, by auction score descending and then by user id, the order in
+ * which the closing pass picks its winner.
+ *
+ * Each auction keeps its bids in a treap whose nodes know their subtree sizes, so adding or rescoring a bid
+ * and finding a bidder's rank are O(log n) and the leader is the leftmost node. The auctions each user has
+ * bid on are indexed too, so a bidder whose skills change can be rescored on all of them.
+ */
+public class BidLeaderboard {
+    private static final ConcurrentHashMap<String, Board> boards = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, Set<String>> projectsByUser = new ConcurrentHashMap<>();
+
+    public static void add(String projectId, Integer userId, int bidAmount, double score) {
+        boards.computeIfAbsent(projectId, id -> new Board()).add(userId, bidAmount, score);
+        projectsByUser.compute(userId, (id, projects) -> {
+            Set<String> result = projects == null ? ConcurrentHashMap.newKeySet() : projects;
+            result.add(projectId);
+            return result;
+        });
+    }
+
+    /**
+     * Moves the user's bid to its new score; does nothing if the user hasn't bid.
+     */
+    public static void rescore(String projectId, Integer userId, double score) {
+        Board board = boards.get(projectId);
+        if (board != null)
+            board.rescore(userId, score);
+    }
+
+    /**
+     * The user's bid amounts by project, for the open auctions the user has bid on.
+     */
+    public static Map<String, Integer> bidsOf(Integer userId) {
+        Map<String, Integer> bids = new HashMap<>();
+        for (String projectId: projectsByUser.getOrDefault(userId, Collections.emptySet())) {
+            Board board = boards.get(projectId);
+            Integer bidAmount = board == null ? null : board.bidAmount(userId);
+            if (bidAmount != null)
+                bids.put(projectId, bidAmount);
+        }
+        return bids;
+    }
+
+    public static List<Integer> bidders(String projectId) {
+        Board board = boards.get(projectId);
+        return board == null ? Collections.emptyList() : board.bidders();
+    }
+
+    /**
+     * 1-based rank of the user's bid, -1 if the user hasn't bid.
+     */
+    public static int rank(String projectId, Integer userId) {
+        Board board = boards.get(projectId);
+        return board == null ? -1 : board.rank(userId);
+    }
+
+    public static int size(String projectId) {
+        Board board = boards.get(projectId);
+        return board == null ? 0 : board.size();
+    }
+
+    /**
+     * User id of the leading bid, null without bids.
+     */
+    public static Integer leader(String projectId) {
+        Board board = boards.get(projectId);
+        return board == null ? null : board.leader();
+    }
+
+    public static void remove(String projectId) {
+        Board board = boards.remove(projectId);
+        if (board == null)
+            return;
+        for (Integer userId: board.bidders())
+            projectsByUser.computeIfPresent(userId, (id, projects) -> {
+                projects.remove(projectId);
+                return projects.isEmpty() ? null : projects;
+            });
+    }
+
+    private static class Node {
+        final double score;
+        final int userId;
+        final int priority;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(double score, int userId, int priority) {
+            this.score = score;
+            this.userId = userId;
+            this.priority = priority;
+        }
+
+        /**
+         * Negative when this node ranks before (score, userId).
+         */
+        int compareTo(double otherScore, int otherUserId) {
+            int result = Double.compare(otherScore, score);
+            return result != 0 ? result : Integer.compare(userId, otherUserId);
+        }
+    }
+
+    private static class Board {
+        private final Random random = new Random();
+        private final Map<Integer, Double> scores = new HashMap<>();
+        private final Map<Integer, Integer> bidAmounts = new HashMap<>();
+        private Node root;
+
+        synchronized void add(int userId, int bidAmount, double score) {
+            if (scores.containsKey(userId))
+                return;
+            scores.put(userId, score);
+            bidAmounts.put(userId, bidAmount);
+            root = insert(root, new Node(score, userId, random.nextInt()));
+        }
+
+        synchronized void rescore(int userId, double score) {
+            Double previous = scores.get(userId);
+            if (previous == null || previous == score)
+                return;
+            scores.put(userId, score);
+            root = insert(delete(root, previous, userId), new Node(score, userId, random.nextInt()));
+        }
+
+        synchronized Integer bidAmount(int userId) {
+            return bidAmounts.get(userId);
+        }
+
+        synchronized List<Integer> bidders() {
+            return new ArrayList<>(scores.keySet());
+        }
+
+        synchronized int rank(int userId) {
+            Double score = scores.get(userId);
+            if (score == null)
+                return -1;
+            int before = 0;
+            Node node = root;
+            while (node != null) {
+                int comparison = node.compareTo(score, userId);
+                if (comparison == 0)
+                    return before + size(node.left) + 1;
+                if (comparison < 0) {
+                    before += size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    node = node.left;
+                }
+            }
+            return -1;
+        }
+
+        synchronized int size() {
+            return size(root);
+        }
+
+        synchronized Integer leader() {
+            if (root == null)
+                return null;
+            Node node = root;
+            while (node.left != null)
+                node = node.left;
+            return node.userId;
+        }
+
+        private static int size(Node node) {
+            return node == null ? 0 : node.size;
+        }
+
+        private static Node update(Node node) {
+            node.size = size(node.left) + size(node.right) + 1;
+            return node;
+        }
+
+        private static Node insert(Node node, Node inserted) {
+            if (node == null)
+                return inserted;
+            if (node.compareTo(inserted.score, inserted.userId) > 0) {
+                node.left = insert(node.left, inserted);
+                if (node.left.priority > node.priority)
+                    return rotateRight(node);
+            } else {
+                node.right = insert(node.right, inserted);
+                if (node.right.priority > node.priority)
+                    return rotateLeft(node);
+            }
+            return update(node);
+        }
+
+        private static Node delete(Node node, double score, int userId) {
+            int comparison = node.compareTo(score, userId);
+            if (comparison == 0)
+                return merge(node.left, node.right);
+            if (comparison > 0)
+                node.left = delete(node.left, score, userId);
+            else
+                node.right = delete(node.right, score, userId);
+            return update(node);
+        }
+
+        private static Node merge(Node left, Node right) {
+            if (left == null)
+                return right;
+            if (right == null)
+                return left;
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                return update(left);
+            }
+            right.left = merge(left, right.left);
+            return update(right);
+        }
+
+        private static Node rotateRight(Node node) {
+            Node left = node.left;
+            node.left = left.right;
+            left.right = update(node);
+            return update(left);
+        }
+
+        private static Node rotateLeft(Node node) {
+            Node right = node.right;
+            node.right = right.left;
+            right.left = update(node);
+            return update(right);
+        }
+    }
+
+    private BidLeaderboard() { }
+}
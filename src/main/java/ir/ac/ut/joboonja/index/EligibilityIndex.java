@@ -0,0 +1,270 @@
+package ir.ac.ut.joboonja.index;
+
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.entities.Skill;
+import ir.ac.ut.joboonja.entities.User;
+import ir.ac.ut.joboonja.models.ProjectCursor;
+import ir.ac.ut.joboonja.utilities.Config;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory copy of every project's skill requirements, used to decide which projects a user may see.
+ *
+ * Requirements are stored as flat primitive arrays (skill id, minimum point) per project, ordered like the
+ * feed: newest first. A user's skills become a vector indexed by skill id, so matching the whole catalog
+ * is one pass over the arrays. The index is immutable; syncs publish a new snapshot, with the new projects
+ * merged into copies of the arrays.
+ * Users' skills aren't indexed, they are read from the user on every check, so skill and point changes
+ * take effect immediately.
+ */
+public class EligibilityIndex {
+    private static final int PARALLEL_THRESHOLD = Config.getInt("joboonja.eligibility.parallelThreshold", 50000);
+
+    private static volatile Snapshot snapshot = new Snapshot(0, 0);
+
+    public static synchronized void addProjects(Collection<Project> projects) {
+        Snapshot current = snapshot;
+        Set<String> addedIds = new HashSet<>();
+        List<Project> added = new ArrayList<>();
+        for (Project project: projects)
+            if (!current.positions.containsKey(project.getId()) && project.getSkills() != null && !project.getSkills().isEmpty()
+                && addedIds.add(project.getId()))
+                added.add(project);
+        if (!added.isEmpty())
+            snapshot = current.merge(added);
+    }
+
+    public static synchronized void removeProjects(Collection<String> projectIds) {
+        Snapshot current = snapshot;
+        Set<String> removed = new HashSet<>(projectIds);
+        removed.retainAll(current.positions.keySet());
+        if (!removed.isEmpty())
+            snapshot = current.without(removed);
+    }
+
+    public static boolean contains(String projectId) {
+        return snapshot.positions.containsKey(projectId);
+    }
+
+    /**
+     * The project's skill requirements as indexed, or null if the project isn't indexed.
+     */
+    public static List<Skill> getRequirements(String projectId) {
+        Snapshot current = snapshot;
+        Integer position = current.positions.get(projectId);
+        return position == null ? null : current.toProject(position).getSkills();
+    }
+
+    public static int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * The creation date of the newest indexed project, 0 when there is none.
+     */
+    public static long getLatestCreationDate() {
+        Snapshot current = snapshot;
+        return current.size() == 0 ? 0 : current.creationDates[0];
+    }
+
+    public static List<String> getEligibleProjectIds(User user) {
+        Snapshot current = snapshot;
+        int[] userPoints = SkillDictionary.toVector(user.getSkills());
+        int[] matches;
+        if (current.size() >= PARALLEL_THRESHOLD)
+            matches = IntStream.range(0, current.size()).parallel().filter(p -> current.matches(p, userPoints)).toArray();
+        else
+            matches = current.matchAll(userPoints);
+        List<String> ids = new ArrayList<>(matches.length);
+        for (int position: matches)
+            ids.add(current.ids[position]);
+        return ids;
+    }
+
+    /**
+     * Positions of up to {@code limit} eligible projects following {@code after} (from the top when null). Only
+     * the part of the catalog the page covers is scanned, so deep pages cost the same as the first.
+     */
+    public static List<ProjectCursor> getEligibleProjectsAfter(User user, ProjectCursor after, int limit) {
+        Snapshot current = snapshot;
+        int[] userPoints = SkillDictionary.toVector(user.getSkills());
+        List<ProjectCursor> positions = new ArrayList<>(Math.min(limit, current.size()));
+        for (int p = after == null ? 0 : current.positionAfter(after); p < current.size() && positions.size() < limit; p++)
+            if (current.matches(p, userPoints))
+                positions.add(new ProjectCursor(current.creationDates[p], current.ids[p]));
+        return positions;
+    }
+
+    /**
+     * Tests project ids for eligibility against one snapshot of the index and the user's current skills.
+     */
+    public static Predicate<String> eligibleFor(User user) {
+        Snapshot current = snapshot;
+        int[] userPoints = SkillDictionary.toVector(user.getSkills());
+        return projectId -> {
+            Integer position = current.positions.get(projectId);
+            return position != null && current.matches(position, userPoints);
+        };
+    }
+
+    public static boolean isEligible(Project project, User user) {
+        if (user == null || project == null)
+            return false;
+        Map<String, Integer> userPoints = new HashMap<>();
+        for (Skill skill: user.getSkills())
+            userPoints.put(skill.getName(), skill.getPoint());
+        for (Skill skill: project.getSkills()) {
+            Integer point = userPoints.get(skill.getName());
+            if (point == null || point < skill.getPoint())
+                return false;
+        }
+        return true;
+    }
+
+    private static class Snapshot {
+        private final String[] ids;
+        private final long[] creationDates;
+        private final int[] requirementStart;
+        private final int[] requiredSkills;
+        private final int[] requiredPoints;
+        private final Map<String, Integer> positions;
+        // filled up to these while a snapshot is being built
+        private int built;
+        private int builtRequirements;
+
+        Snapshot(int projects, int requirements) {
+            ids = new String[projects];
+            creationDates = new long[projects];
+            requirementStart = new int[projects + 1];
+            requiredSkills = new int[requirements];
+            requiredPoints = new int[requirements];
+            positions = new HashMap<>(projects * 2);
+        }
+
+        /**
+         * A copy with {@code added} (none of them indexed yet) merged in feed order. Existing projects are
+         * copied array to array, so the cost is one pass over the arrays plus sorting the new projects.
+         */
+        Snapshot merge(List<Project> added) {
+            List<Project> ordered = new ArrayList<>(added);
+            ordered.sort((a, b) -> compare(creationDateOf(b), b.getId(), creationDateOf(a), a.getId()));
+            int requirements = requiredSkills.length;
+            for (Project project: ordered)
+                requirements += project.getSkills().size();
+
+            Snapshot merged = new Snapshot(size() + ordered.size(), requirements);
+            int p = 0;
+            for (Project project: ordered) {
+                while (p < size() && compare(creationDates[p], ids[p], creationDateOf(project), project.getId()) > 0)
+                    merged.append(this, p++);
+                merged.append(project);
+            }
+            while (p < size())
+                merged.append(this, p++);
+            return merged;
+        }
+
+        Snapshot without(Set<String> removed) {
+            int requirements = requiredSkills.length;
+            for (String id: removed) {
+                int position = positions.get(id);
+                requirements -= requirementStart[position + 1] - requirementStart[position];
+            }
+            Snapshot kept = new Snapshot(size() - removed.size(), requirements);
+            for (int p = 0; p < size(); p++)
+                if (!removed.contains(ids[p]))
+                    kept.append(this, p);
+            return kept;
+        }
+
+        private void append(Snapshot from, int position) {
+            ids[built] = from.ids[position];
+            creationDates[built] = from.creationDates[position];
+            positions.put(ids[built], built);
+            int start = from.requirementStart[position];
+            int count = from.requirementStart[position + 1] - start;
+            System.arraycopy(from.requiredSkills, start, requiredSkills, builtRequirements, count);
+            System.arraycopy(from.requiredPoints, start, requiredPoints, builtRequirements, count);
+            builtRequirements += count;
+            requirementStart[++built] = builtRequirements;
+        }
+
+        private void append(Project project) {
+            ids[built] = project.getId();
+            creationDates[built] = creationDateOf(project);
+            positions.put(ids[built], built);
+            for (Skill skill: project.getSkills()) {
+                requiredSkills[builtRequirements] = SkillDictionary.idOf(skill.getName());
+                requiredPoints[builtRequirements] = skill.getPoint() == null ? 0 : skill.getPoint();
+                builtRequirements++;
+            }
+            requirementStart[++built] = builtRequirements;
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        static long creationDateOf(Project project) {
+            return project.getCreationDate() == null ? 0 : project.getCreationDate();
+        }
+
+        static int compare(long creationDate, String id, long otherCreationDate, String otherId) {
+            int result = Long.compare(creationDate, otherCreationDate);
+            return result != 0 ? result : id.compareTo(otherId);
+        }
+
+        /**
+         * First position strictly after the cursor in feed order.
+         */
+        int positionAfter(ProjectCursor cursor) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(creationDates[middle], ids[middle], cursor.getCreationDate(), cursor.getId()) < 0)
+                    high = middle;
+                else
+                    low = middle + 1;
+            }
+            return low;
+        }
+
+        boolean matches(int position, int[] userPoints) {
+            for (int r = requirementStart[position]; r < requirementStart[position + 1]; r++) {
+                int skill = requiredSkills[r];
+                if (skill >= userPoints.length || userPoints[skill] < requiredPoints[r])
+                    return false;
+            }
+            return true;
+        }
+
+        int[] matchAll(int[] userPoints) {
+            int[] matches = new int[ids.length];
+            int count = 0;
+            for (int p = 0; p < ids.length; p++)
+                if (matches(p, userPoints))
+                    matches[count++] = p;
+            return Arrays.copyOf(matches, count);
+        }
+
+        /**
+         * Rebuilds the requirement-only view of a project.
+         */
+        Project toProject(int position) {
+            List<Skill> skills = new ArrayList<>(requirementStart[position + 1] - requirementStart[position]);
+            for (int r = requirementStart[position]; r < requirementStart[position + 1]; r++)
+                skills.add(new Skill(SkillDictionary.nameOf(requiredSkills[r]), requiredPoints[r]));
+            Project project = new Project();
+            project.setId(ids[position]);
+            project.setCreationDate(creationDates[position]);
+            project.setSkills(skills);
+            return project;
+        }
+    }
+
+    private EligibilityIndex() { }
+}
@@ -0,0 +1,114 @@
+package ir.ac.ut.joboonja.index;
+
+import ir.ac.ut.joboonja.models.CacheStats;
+import ir.ac.ut.joboonja.utilities.Config;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-user cache of the ordered ids of the projects in the user's feed, LRU within a budget of
+ * {@code joboonja.feedCache.maxIds} ids in total.
+ *
+ * A feed only changes when projects are added or when the user's skills change, so entries have no TTL.
+ * Each entry remembers the skill vector it was computed for and only serves lookups with the same skills,
+ * so a feed computed from a user read before a skill change can't outlive the change. Entries are dropped by
+ * {@link #invalidate} for the users a project was added or removed for, and a feed computed while an
+ * invalidation happened is returned but not cached.
+ */
+public class FeedCache {
+    private static final long MAX_IDS = Config.getLong("joboonja.feedCache.maxIds", 2000000);
+
+    private static final AtomicLong epoch = new AtomicLong();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    private static final AtomicLong invalidations = new AtomicLong();
+    private static long size = 0;
+
+    private static final LinkedHashMap<Integer, Feed> feeds = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static class Feed {
+        private final int[] skills;
+        private final List<String> ids;
+
+        Feed(int[] skills, List<String> ids) {
+            this.skills = skills;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * The feed of {@code userId}, whose skills {@code loader} reads are {@code skills}
+     * (see {@link SkillDictionary#toVector}).
+     */
+    public static List<String> get(Integer userId, int[] skills, Supplier<List<String>> loader) {
+        synchronized (feeds) {
+            Feed feed = feeds.get(userId);
+            if (feed != null && sameSkills(feed.skills, skills)) {
+                hits.incrementAndGet();
+                return feed.ids;
+            }
+        }
+        misses.incrementAndGet();
+
+        long startEpoch = epoch.get();
+        List<String> ids = Collections.unmodifiableList(loader.get());
+        if (ids.size() > MAX_IDS)
+            return ids;
+        synchronized (feeds) {
+            if (epoch.get() != startEpoch)
+                return ids;
+            Feed previous = feeds.put(userId, new Feed(skills, ids));
+            size += ids.size() - (previous == null ? 0 : previous.ids.size());
+            Iterator<Feed> eldest = feeds.values().iterator();
+            while (size > MAX_IDS && eldest.hasNext()) {
+                size -= eldest.next().ids.size();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Vectors encoded at different dictionary sizes are equal when they only differ in trailing missing skills.
+     */
+    private static boolean sameSkills(int[] a, int[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++)
+            if (a[i] != b[i])
+                return false;
+        int[] longer = a.length > b.length ? a : b;
+        for (int i = common; i < longer.length; i++)
+            if (longer[i] != -1)
+                return false;
+        return true;
+    }
+
+    public static void invalidate(Integer userId) {
+        invalidate(Collections.singletonList(userId));
+    }
+
+    public static void invalidate(Collection<Integer> userIds) {
+        synchronized (feeds) {
+            epoch.incrementAndGet();
+            for (Integer userId: userIds) {
+                Feed feed = feeds.remove(userId);
+                if (feed != null) {
+                    size -= feed.ids.size();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public static CacheStats getStats() {
+        synchronized (feeds) {
+            return new CacheStats(hits.get(), misses.get(), evictions.get(), invalidations.get(), size, MAX_IDS);
+        }
+    }
+
+    private FeedCache() { }
+}
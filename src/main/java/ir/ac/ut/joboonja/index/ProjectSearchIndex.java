@@ -0,0 +1,232 @@
+package ir.ac.ut.joboonja.index;
+
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.models.ProjectCursor;
+import ir.ac.ut.joboonja.utilities.Config;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Full-text index over project titles and descriptions.
+ *
+ * Text is normalized (case, Arabic/Persian letter variants, diacritics) and split into terms; each term keeps
+ * a posting map from project id to its weight in that project, title occurrences counting three times.
+ * A query matches projects containing all of its terms, the last term also matching as a prefix so results
+ * follow the user's typing, and ranks them by tf-idf, newest first on ties. Last terms shorter than
+ * {@code joboonja.search.minPrefixLength} only match exactly, since they would expand to most of the vocabulary.
+ */
+public class ProjectSearchIndex {
+    private static final int TITLE_WEIGHT = 3;
+    private static final int MIN_PREFIX_LENGTH = Config.getInt("joboonja.search.minPrefixLength", 2);
+
+    private static final ConcurrentSkipListMap<String, ConcurrentHashMap<String, Float>> postings = new ConcurrentSkipListMap<>();
+    private static final ConcurrentHashMap<String, Long> creationDates = new ConcurrentHashMap<>();
+
+    public static class Hit {
+        private final String id;
+        private final double score;
+        private final long creationDate;
+        private final double[] idf;
+
+        Hit(String id, double score, long creationDate, double[] idf) {
+            this.id = id;
+            this.score = score;
+            this.creationDate = creationDate;
+            this.idf = idf;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public ProjectCursor toCursor() {
+            return new ProjectCursor(creationDate, id, score, idf);
+        }
+    }
+
+    private static final Comparator<Hit> RANKING = (a, b) -> {
+        int result = Double.compare(b.score, a.score);
+        if (result == 0)
+            result = Long.compare(b.creationDate, a.creationDate);
+        return result != 0 ? result : b.id.compareTo(a.id);
+    };
+
+    public static synchronized void addProjects(Collection<Project> projects) {
+        for (Project project: projects) {
+            if (creationDates.containsKey(project.getId()))
+                continue;
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String term: tokenize(project.getTitle()))
+                frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+            for (String term: tokenize(project.getDescription()))
+                frequencies.merge(term, 1, Integer::sum);
+            for (Map.Entry<String, Integer> frequency: frequencies.entrySet())
+                postings.computeIfAbsent(frequency.getKey(), term -> new ConcurrentHashMap<>())
+                    .put(project.getId(), (float) (1 + Math.log(frequency.getValue())));
+            creationDates.put(project.getId(), project.getCreationDate() == null ? 0 : project.getCreationDate());
+        }
+    }
+
+    public static synchronized void removeProjects(Collection<String> projectIds) {
+        Set<String> removed = new HashSet<>(projectIds);
+        removed.retainAll(creationDates.keySet());
+        if (removed.isEmpty())
+            return;
+        Iterator<ConcurrentHashMap<String, Float>> terms = postings.values().iterator();
+        while (terms.hasNext()) {
+            ConcurrentHashMap<String, Float> posting = terms.next();
+            posting.keySet().removeAll(removed);
+            if (posting.isEmpty())
+                terms.remove();
+        }
+        creationDates.keySet().removeAll(removed);
+    }
+
+    public static int size() {
+        return creationDates.size();
+    }
+
+    /**
+     * Ranked hits for {@code query} accepted by {@code filter}.
+     */
+    public static List<Hit> search(String query, Predicate<String> filter) {
+        List<Hit> hits = new ArrayList<>();
+        collectHits(tokenize(query), null, filter, hits::add);
+        hits.sort(RANKING);
+        return hits;
+    }
+
+    /**
+     * Up to {@code limit} hits ranked after {@code after}, from the top when null. Scores use the cursor's idf,
+     * so they match the ones the previous page was ranked by, and only the page's hits get sorted.
+     */
+    public static List<Hit> searchAfter(String query, Predicate<String> filter, ProjectCursor after, int limit) {
+        if (limit <= 0)
+            return Collections.emptyList();
+        Hit cursor = after == null ? null :
+            new Hit(after.getId(), after.getScore() == null ? Double.MAX_VALUE : after.getScore(), after.getCreationDate(), null);
+        PriorityQueue<Hit> page = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        collectHits(tokenize(query), after == null ? null : after.getIdf(), filter, hit -> {
+            if (cursor != null && RANKING.compare(hit, cursor) <= 0)
+                return;
+            page.add(hit);
+            if (page.size() > limit)
+                page.poll();
+        });
+        List<Hit> hits = new ArrayList<>(page);
+        hits.sort(RANKING);
+        return hits;
+    }
+
+    /**
+     * Scores the projects matching every term; {@code idf} replaces the current idf when it has one value per term.
+     */
+    private static void collectHits(List<String> terms, double[] idf, Predicate<String> filter, Consumer<Hit> consumer) {
+        if (terms.isEmpty())
+            return;
+        List<Map<String, Float>> termPostings = new ArrayList<>(terms.size());
+        for (int i = 0; i < terms.size() - 1; i++) {
+            Map<String, Float> exact = postings.get(terms.get(i));
+            if (exact == null)
+                return;
+            termPostings.add(exact);
+        }
+        Map<String, Float> prefix = prefixPostings(terms.get(terms.size() - 1));
+        if (prefix.isEmpty())
+            return;
+        termPostings.add(prefix);
+
+        if (idf == null || idf.length != terms.size()) {
+            int documents = Math.max(1, creationDates.size());
+            idf = new double[terms.size()];
+            for (int i = 0; i < idf.length; i++)
+                idf[i] = Math.log(1 + (double) documents / termPostings.get(i).size());
+        }
+
+        Map<String, Float> smallest = Collections.min(termPostings, Comparator.comparingInt(Map::size));
+        for (String id: smallest.keySet()) {
+            double score = 0;
+            for (int i = 0; i < termPostings.size(); i++) {
+                Float weight = termPostings.get(i).get(id);
+                if (weight == null) {
+                    score = -1;
+                    break;
+                }
+                score += weight * idf[i];
+            }
+            if (score >= 0 && filter.test(id))
+                consumer.accept(new Hit(id, score, creationDates.getOrDefault(id, 0L), idf));
+        }
+    }
+
+    private static Map<String, Float> prefixPostings(String prefix) {
+        Map<String, Float> exact = postings.get(prefix);
+        if (prefix.length() < MIN_PREFIX_LENGTH)
+            return exact == null ? Collections.emptyMap() : exact;
+        NavigableMap<String, ConcurrentHashMap<String, Float>> expansions = postings.subMap(prefix, false, prefix + Character.MAX_VALUE, false);
+        if (expansions.isEmpty())
+            return exact == null ? Collections.emptyMap() : exact;
+
+        Map<String, Float> merged = exact == null ? new HashMap<>() : new HashMap<>(exact);
+        for (Map<String, Float> posting: expansions.values()) {
+            for (Map.Entry<String, Float> entry: posting.entrySet())
+                merged.merge(entry.getKey(), entry.getValue(), Math::max);
+        }
+        return merged;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null)
+            return terms;
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? normalize(text.charAt(i)) : ' ';
+            if (c == 0)
+                continue;
+            if (Character.isLetterOrDigit(c)) {
+                term.append(c);
+            } else if (term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Folds a character to its indexed form; 0 for characters that are dropped.
+     */
+    private static char normalize(char c) {
+        switch (c) {
+            case 'ي': // Arabic yeh
+            case 'ى': // alef maksura
+                return 'ی';
+            case 'ك': // Arabic kaf
+                return 'ک';
+            case 'ة': // teh marbuta
+                return 'ه';
+            case 'آ': // alef with madda
+            case 'أ': // alef with hamza above
+            case 'إ': // alef with hamza below
+                return 'ا';
+            case 'ـ': // tatweel
+                return 0;
+            case '‌': // zero-width non-joiner
+                return ' ';
+        }
+        if (c >= 'ً' && c <= 'ْ') // harakat
+            return 0;
+        if (c >= '۰' && c <= '۹') // Persian digits
+            return (char) ('0' + (c - '۰'));
+        if (c >= '٠' && c <= '٩') // Arabic digits
+            return (char) ('0' + (c - '٠'));
+        return Character.toLowerCase(c);
+    }
+
+    private ProjectSearchIndex() { }
+}
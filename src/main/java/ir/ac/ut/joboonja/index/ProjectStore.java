@@ -0,0 +1,93 @@
+package ir.ac.ut.joboonja.index;
+
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.models.CacheStats;
+import ir.ac.ut.joboonja.utilities.Config;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Shared LRU store of project entities by id, bounded by {@code joboonja.projectStore.maxEntries}.
+ * Synced projects never change, so entries are kept until evicted; their skill lists are unmodifiable
+ * since the same instance is handed to every request.
+ */
+public class ProjectStore {
+    private static final int MAX_ENTRIES = Config.getInt("joboonja.projectStore.maxEntries", 20000);
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private static final LinkedHashMap<String, Project> projects = new LinkedHashMap<String, Project>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Project> eldest) {
+            if (size() <= MAX_ENTRIES)
+                return false;
+            evictions.incrementAndGet();
+            return true;
+        }
+    };
+
+    public static void putAll(Collection<Project> loaded) {
+        synchronized (projects) {
+            for (Project project: loaded) {
+                project.setSkills(Collections.unmodifiableList(new ArrayList<>(project.getSkills())));
+                projects.put(project.getId(), project);
+            }
+        }
+    }
+
+    public static void removeAll(Collection<String> ids) {
+        synchronized (projects) {
+            projects.keySet().removeAll(ids);
+        }
+    }
+
+    public static Project get(String id, Function<List<String>, List<Project>> loader) {
+        List<Project> found = getAll(Collections.singletonList(id), loader);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * The projects with {@code ids}, in order, loading the missing ones with one call to {@code loader}.
+     */
+    public static List<Project> getAll(List<String> ids, Function<List<String>, List<Project>> loader) {
+        Map<String, Project> found = new HashMap<>(ids.size() * 2);
+        List<String> missing = new ArrayList<>();
+        synchronized (projects) {
+            for (String id: ids) {
+                Project project = projects.get(id);
+                if (project != null)
+                    found.put(id, project);
+                else
+                    missing.add(id);
+            }
+        }
+        hits.addAndGet(found.size());
+        misses.addAndGet(missing.size());
+        if (!missing.isEmpty()) {
+            List<Project> loaded = loader.apply(missing);
+            putAll(loaded);
+            for (Project project: loaded)
+                found.put(project.getId(), project);
+        }
+
+        List<Project> result = new ArrayList<>(ids.size());
+        for (String id: ids) {
+            Project project = found.get(id);
+            if (project != null)
+                result.add(project);
+        }
+        return result;
+    }
+
+    public static CacheStats getStats() {
+        synchronized (projects) {
+            return new CacheStats(hits.get(), misses.get(), evictions.get(), 0, projects.size(), MAX_ENTRIES);
+        }
+    }
+
+    private ProjectStore() { }
+}
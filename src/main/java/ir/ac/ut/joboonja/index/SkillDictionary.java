@@ -0,0 +1,64 @@
+package ir.ac.ut.joboonja.index;
+
+import ir.ac.ut.joboonja.entities.Skill;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dictionary encoding of skill names to dense int ids, shared by the in-memory indexes so that
+ * skill vectors can be plain int arrays indexed by skill id.
+ */
+public class SkillDictionary {
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private static final List<String> names = new CopyOnWriteArrayList<>();
+
+    public static int idOf(String skillName) {
+        Integer id = ids.get(skillName);
+        if (id != null)
+            return id;
+        synchronized (ids) {
+            id = ids.get(skillName);
+            if (id == null) {
+                id = names.size();
+                names.add(skillName);
+                ids.put(skillName, id);
+            }
+            return id;
+        }
+    }
+
+    public static String nameOf(int id) {
+        return names.get(id);
+    }
+
+    public static int lookup(String skillName) {
+        Integer id = ids.get(skillName);
+        return id == null ? -1 : id;
+    }
+
+    public static int size() {
+        return ids.size();
+    }
+
+    /**
+     * Points per skill id, -1 for skills the list doesn't contain. Skills are encoded first, so the vector
+     * covers every skill in the list; ids assigned later fall beyond its end.
+     */
+    public static int[] toVector(List<Skill> skills) {
+        for (Skill skill: skills)
+            idOf(skill.getName());
+        int[] vector = new int[size()];
+        Arrays.fill(vector, -1);
+        for (Skill skill: skills) {
+            int id = lookup(skill.getName());
+            if (id < vector.length)
+                vector[id] = skill.getPoint() == null ? 0 : skill.getPoint();
+        }
+        return vector;
+    }
+
+    private SkillDictionary() { }
+}
@@ -0,0 +1,43 @@
+package ir.ac.ut.joboonja.index;
+
+import ir.ac.ut.joboonja.entities.Skill;
+
+import java.util.List;
+
+/**
+ * Sparse dictionary-encoded skill list, e.g. a project's requirements: skill ids and their points
+ * in parallel arrays.
+ */
+public class SkillVector {
+    private final int[] skills;
+    private final int[] points;
+
+    private SkillVector(int[] skills, int[] points) {
+        this.skills = skills;
+        this.points = points;
+    }
+
+    public static SkillVector of(List<Skill> skills) {
+        int[] ids = new int[skills.size()];
+        int[] points = new int[skills.size()];
+        int i = 0;
+        for (Skill skill: skills) {
+            ids[i] = SkillDictionary.idOf(skill.getName());
+            points[i] = skill.getPoint() == null ? 0 : skill.getPoint();
+            i++;
+        }
+        return new SkillVector(ids, points);
+    }
+
+    public int size() {
+        return skills.length;
+    }
+
+    public int skillAt(int i) {
+        return skills[i];
+    }
+
+    public int pointAt(int i) {
+        return points[i];
+    }
+}
@@ -0,0 +1,141 @@
+package ir.ac.ut.joboonja.index;
+
+import ir.ac.ut.joboonja.entities.Skill;
+import ir.ac.ut.joboonja.entities.User;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Inverted index from skill to the users having it, used to find every user eligible for a project.
+ *
+ * Each skill's postings are ordered by points descending, so the users meeting one (skill, point)
+ * requirement are a prefix of its postings. Matching walks the prefixes of all requirements side by side
+ * and stops as soon as the shortest one is exhausted; only that prefix's users are then checked against
+ * the remaining requirements.
+ */
+public class UserSkillIndex {
+    private static final ConcurrentHashMap<Integer, Postings> postings = new ConcurrentHashMap<>();
+
+    public static void addUser(User user) {
+        for (Skill skill: user.getSkills())
+            setPoints(user.getId(), skill.getName(), skill.getPoint() == null ? 0 : skill.getPoint());
+    }
+
+    /**
+     * Replaces whatever the index holds for the user with the user's current skills.
+     */
+    public static void setUser(User user) {
+        Set<Integer> skills = new HashSet<>();
+        for (Skill skill: user.getSkills()) {
+            skills.add(SkillDictionary.idOf(skill.getName()));
+            setPoints(user.getId(), skill.getName(), skill.getPoint() == null ? 0 : skill.getPoint());
+        }
+        postings.forEach((skill, skillPostings) -> {
+            if (!skills.contains(skill))
+                skillPostings.remove(user.getId());
+        });
+    }
+
+    public static void setPoints(Integer userId, String skillName, int points) {
+        getPostings(SkillDictionary.idOf(skillName)).set(userId, points);
+    }
+
+    public static void addPoints(Integer userId, String skillName, int delta) {
+        getPostings(SkillDictionary.idOf(skillName)).add(userId, delta);
+    }
+
+    public static void removeSkill(Integer userId, String skillName) {
+        Postings skillPostings = postings.get(SkillDictionary.lookup(skillName));
+        if (skillPostings != null)
+            skillPostings.remove(userId);
+    }
+
+    public static List<Integer> findEligibleUsers(List<Skill> requirements) {
+        if (requirements.isEmpty())
+            return Collections.emptyList();
+        List<Postings> lists = new ArrayList<>(requirements.size());
+        List<Iterator<Long>> prefixes = new ArrayList<>(requirements.size());
+        int[] minPoints = new int[requirements.size()];
+        for (int i = 0; i < requirements.size(); i++) {
+            Skill requirement = requirements.get(i);
+            Postings skillPostings = postings.get(SkillDictionary.lookup(requirement.getName()));
+            if (skillPostings == null)
+                return Collections.emptyList();
+            minPoints[i] = requirement.getPoint() == null ? 0 : requirement.getPoint();
+            lists.add(skillPostings);
+            prefixes.add(skillPostings.atLeast(minPoints[i]).iterator());
+        }
+
+        int shortest = -1;
+        while (shortest == -1) {
+            for (int i = 0; i < prefixes.size() && shortest == -1; i++) {
+                if (!prefixes.get(i).hasNext())
+                    shortest = i;
+                else
+                    prefixes.get(i).next();
+            }
+        }
+
+        List<Integer> users = new ArrayList<>();
+        for (long key: lists.get(shortest).atLeast(minPoints[shortest])) {
+            int userId = Postings.userId(key);
+            boolean eligible = true;
+            for (int i = 0; i < lists.size() && eligible; i++)
+                if (i != shortest) {
+                    Integer points = lists.get(i).pointsOf(userId);
+                    eligible = points != null && points >= minPoints[i];
+                }
+            if (eligible)
+                users.add(userId);
+        }
+        return users;
+    }
+
+    private static Postings getPostings(int skillId) {
+        return postings.computeIfAbsent(skillId, id -> new Postings());
+    }
+
+    private static class Postings {
+        private final ConcurrentSkipListSet<Long> ordered = new ConcurrentSkipListSet<>();
+        private final ConcurrentHashMap<Integer, Integer> points = new ConcurrentHashMap<>();
+
+        static long key(int points, int userId) {
+            return ((long) (Integer.MAX_VALUE - points) << 32) | (userId & 0xffffffffL);
+        }
+
+        static int userId(long key) {
+            return (int) key;
+        }
+
+        Integer pointsOf(int userId) {
+            return points.get(userId);
+        }
+
+        NavigableSet<Long> atLeast(int minPoints) {
+            return ordered.headSet(key(minPoints, -1), true);
+        }
+
+        synchronized void set(int userId, int newPoints) {
+            Integer old = points.put(userId, newPoints);
+            if (old != null)
+                ordered.remove(key(old, userId));
+            ordered.add(key(newPoints, userId));
+        }
+
+        synchronized void add(int userId, int delta) {
+            Integer old = points.get(userId);
+            if (old != null)
+                set(userId, old + delta);
+        }
+
+        synchronized void remove(int userId) {
+            Integer old = points.remove(userId);
+            if (old != null)
+                ordered.remove(key(old, userId));
+        }
+    }
+
+    private UserSkillIndex() { }
+}
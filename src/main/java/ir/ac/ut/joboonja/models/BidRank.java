@@ -0,0 +1,29 @@
+package ir.ac.ut.joboonja.models;
+
+public class BidRank {
+    private int rank;
+    private int bidders;
+
+    public BidRank() {}
+
+    public BidRank(int rank, int bidders) {
+        this.rank = rank;
+        this.bidders = bidders;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    public int getBidders() {
+        return bidders;
+    }
+
+    public void setBidders(int bidders) {
+        this.bidders = bidders;
+    }
+}
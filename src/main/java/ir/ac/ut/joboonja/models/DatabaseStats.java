@@ -0,0 +1,71 @@
+package ir.ac.ut.joboonja.models;
+
+import ir.ac.ut.joboonja.database.QueryStats;
+
+import java.util.List;
+
+public class DatabaseStats {
+    private List<QueryStats> queries;
+    private long statementCacheHits;
+    private long statementCacheMisses;
+    private long queryShapeHits;
+    private long queryShapeMisses;
+    private CacheStats resultCache;
+
+    public DatabaseStats(List<QueryStats> queries, long statementCacheHits, long statementCacheMisses, long queryShapeHits, long queryShapeMisses, CacheStats resultCache) {
+        this.queries = queries;
+        this.resultCache = resultCache;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.queryShapeHits = queryShapeHits;
+        this.queryShapeMisses = queryShapeMisses;
+    }
+
+    public List<QueryStats> getQueries() {
+        return queries;
+    }
+
+    public void setQueries(List<QueryStats> queries) {
+        this.queries = queries;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public void setStatementCacheHits(long statementCacheHits) {
+        this.statementCacheHits = statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    public void setStatementCacheMisses(long statementCacheMisses) {
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    public long getQueryShapeHits() {
+        return queryShapeHits;
+    }
+
+    public void setQueryShapeHits(long queryShapeHits) {
+        this.queryShapeHits = queryShapeHits;
+    }
+
+    public long getQueryShapeMisses() {
+        return queryShapeMisses;
+    }
+
+    public void setQueryShapeMisses(long queryShapeMisses) {
+        this.queryShapeMisses = queryShapeMisses;
+    }
+
+    public CacheStats getResultCache() {
+        return resultCache;
+    }
+
+    public void setResultCache(CacheStats resultCache) {
+        this.resultCache = resultCache;
+    }
+}
@@ -0,0 +1,97 @@
+package ir.ac.ut.joboonja.models;
+
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the project feed, newest first: a page continues with the projects strictly
+ * after (creationDate, id). Search results are ranked by score first, so their cursors carry it too,
+ * along with the idf of each query term the score was computed with; later pages score with the same
+ * idf, so projects added meanwhile can't shift the ranking under the cursor.
+ * Clients get it as an opaque token.
+ */
+public class ProjectCursor {
+    private long creationDate;
+    private String id;
+    private Double score;
+    private double[] idf;
+
+    public ProjectCursor(long creationDate, String id) {
+        this(creationDate, id, null);
+    }
+
+    public ProjectCursor(long creationDate, String id, Double score) {
+        this(creationDate, id, score, null);
+    }
+
+    public ProjectCursor(long creationDate, String id, Double score, double[] idf) {
+        this.creationDate = creationDate;
+        this.id = id;
+        this.score = score;
+        this.idf = idf;
+    }
+
+    public static ProjectCursor after(Project project) {
+        return new ProjectCursor(project.getCreationDate() == null ? 0 : project.getCreationDate(), project.getId());
+    }
+
+    public static ProjectCursor decode(String token) {
+        if (token == null || token.isEmpty())
+            return null;
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(':');
+            String position = value.substring(0, separator);
+            double[] idf = null;
+            int idfSeparator = position.indexOf(';');
+            if (idfSeparator != -1) {
+                String[] values = position.substring(0, idfSeparator).split(",");
+                idf = new double[values.length];
+                for (int i = 0; i < values.length; i++)
+                    idf[i] = Double.parseDouble(values[i]);
+                position = position.substring(idfSeparator + 1);
+            }
+            Double score = null;
+            int scoreSeparator = position.indexOf('/');
+            if (scoreSeparator != -1) {
+                score = Double.parseDouble(position.substring(0, scoreSeparator));
+                position = position.substring(scoreSeparator + 1);
+            }
+            return new ProjectCursor(Long.parseLong(position), value.substring(separator + 1), score, idf);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid cursor!");
+        }
+    }
+
+    public String encode() {
+        StringBuilder value = new StringBuilder();
+        if (idf != null) {
+            for (int i = 0; i < idf.length; i++)
+                value.append(i == 0 ? "" : ",").append(idf[i]);
+            value.append(';');
+        }
+        if (score != null)
+            value.append(score).append('/');
+        value.append(creationDate).append(':').append(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long getCreationDate() {
+        return creationDate;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public double[] getIdf() {
+        return idf;
+    }
+}
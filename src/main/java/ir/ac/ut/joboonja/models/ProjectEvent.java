@@ -0,0 +1,52 @@
+package ir.ac.ut.joboonja.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProjectEvent {
+    private String projectId;
+    private Integer winnerId;
+    private Integer rank;
+
+    public ProjectEvent() {}
+
+    public ProjectEvent(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public static ProjectEvent decided(String projectId, Integer winnerId) {
+        ProjectEvent event = new ProjectEvent(projectId);
+        event.winnerId = winnerId;
+        return event;
+    }
+
+    public static ProjectEvent outbid(String projectId, int rank) {
+        ProjectEvent event = new ProjectEvent(projectId);
+        event.rank = rank;
+        return event;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public Integer getWinnerId() {
+        return winnerId;
+    }
+
+    public void setWinnerId(Integer winnerId) {
+        this.winnerId = winnerId;
+    }
+
+    public Integer getRank() {
+        return rank;
+    }
+
+    public void setRank(Integer rank) {
+        this.rank = rank;
+    }
+}
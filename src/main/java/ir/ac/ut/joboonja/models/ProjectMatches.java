@@ -0,0 +1,35 @@
+package ir.ac.ut.joboonja.models;
+
+import java.util.List;
+
+public class ProjectMatches {
+    private String projectId;
+    private List<Integer> userIds;
+
+    public ProjectMatches() {}
+
+    public ProjectMatches(String projectId, List<Integer> userIds) {
+        this.projectId = projectId;
+        this.userIds = userIds;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public List<Integer> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<Integer> userIds) {
+        this.userIds = userIds;
+    }
+
+    public int getCount() {
+        return userIds.size();
+    }
+}
@@ -0,0 +1,23 @@
+package ir.ac.ut.joboonja.models;
+
+import ir.ac.ut.joboonja.entities.Project;
+
+import java.util.List;
+
+public class ProjectPage {
+    private List<Project> projects;
+    private ProjectCursor next;
+
+    public ProjectPage(List<Project> projects, ProjectCursor next) {
+        this.projects = projects;
+        this.next = next;
+    }
+
+    public List<Project> getProjects() {
+        return projects;
+    }
+
+    public ProjectCursor getNext() {
+        return next;
+    }
+}
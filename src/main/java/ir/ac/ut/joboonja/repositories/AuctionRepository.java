@@ -1,12 +1,21 @@
 package ir.ac.ut.joboonja.repositories;
 
+import ir.ac.ut.joboonja.database.BatchResult;
 import ir.ac.ut.joboonja.entities.Auction;
 import ir.ac.ut.joboonja.entities.Bid;
 import ir.ac.ut.joboonja.entities.Project;
 
+import java.util.List;
+
 public interface AuctionRepository {
-    void insertBid(Bid bid);
+    boolean insertBid(Bid bid);
+    List<Boolean> insertBids(List<Bid> bids);
+    Bid getBid(String projectId, Integer userId);
     Auction getAuction(String id);
+    List<Auction> getAuctions(List<String> projectIds);
     void insertAuction(Auction auction);
+    BatchResult insertAuctions(List<Auction> auctions);
     Auction getAuctionWinner(Project project);
+    List<Auction> getAuctionWinners(List<String> projectIds);
+    void archiveAuctions(List<String> projectIds);
 }
@@ -0,0 +1,13 @@
+package ir.ac.ut.joboonja.repositories;
+
+import ir.ac.ut.joboonja.entities.NodeHeartbeat;
+
+import java.util.List;
+
+public interface ClusterRepository {
+    void heartbeat(String nodeId);
+    void removeNode(String nodeId);
+    List<NodeHeartbeat> getLiveNodes(long ttlMillis);
+    boolean acquireLease(String name, String owner, long ttlMillis);
+    void releaseLease(String name, String owner);
+}
@@ -0,0 +1,14 @@
+package ir.ac.ut.joboonja.repositories;
+
+import ir.ac.ut.joboonja.entities.DataVersion;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface DataVersionRepository {
+    void bump(String dataSet);
+    void bump(Collection<String> dataSets);
+    void delete(List<String> dataSets);
+    List<DataVersion> getVersions(List<String> dataSets);
+    List<DataVersion> getChangedWithin(long windowMillis);
+}
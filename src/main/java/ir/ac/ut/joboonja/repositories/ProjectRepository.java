@@ -1,17 +1,22 @@
 package ir.ac.ut.joboonja.repositories;
 
+import ir.ac.ut.joboonja.database.BatchResult;
 import ir.ac.ut.joboonja.entities.Project;
-import ir.ac.ut.joboonja.entities.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ProjectRepository {
-    List<Project> getAllProjects(User user);
-    List<Project> getAllProjects();
+    void streamAllProjects(Consumer<Project> consumer);
+    void streamProjectsCreatedAfter(long creationDate, Consumer<Project> consumer);
+    void streamUndecidedProjects(Consumer<Project> consumer);
     void insertProject(Project project);
-    Project getProjectById(String id, User user);
-    List<Project> searchProjects(String filter, User user);
-
-    List<Project> searchProjectsPaginated(String filter, Integer pageNumber, Integer pageSize, User user);
-    List<Project> getProjectsPaginated(User user, Integer pageNumber, Integer pageSize);
+    BatchResult insertProjects(List<Project> projects);
+    List<Project> getProjectsByIds(List<String> ids);
+    List<String> getArchivableProjectIds(long deadlineBefore, int limit);
+    void archiveProjects(List<String> ids);
+    List<String> getArchivedProjectIds(List<String> ids);
+    long getLatestArchivedAt();
+    List<String> getProjectIdsArchivedAfter(long archivedAt);
+    List<Project> getArchivedProjectsWonBy(Integer userId);
 }
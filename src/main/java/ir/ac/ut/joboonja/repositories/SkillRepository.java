@@ -1,5 +1,6 @@
 package ir.ac.ut.joboonja.repositories;
 
+import ir.ac.ut.joboonja.database.BatchResult;
 import ir.ac.ut.joboonja.entities.Skill;
 
 import java.sql.SQLException;
@@ -8,5 +9,6 @@ import java.util.List;
 public interface SkillRepository {
     boolean skillExists(Skill skill);
     void insertSkill(Skill skill);
+    BatchResult insertSkills(List<Skill> skills);
     List<Skill> getAllSkills();
 }
@@ -3,6 +3,7 @@ package ir.ac.ut.joboonja.repositories;
 import ir.ac.ut.joboonja.entities.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserRepository {
     void insertUser(User user);
@@ -11,8 +12,10 @@ public interface UserRepository {
 
     User getUser(String username);
     User getUserById(Integer id);
+    List<User> getUsersByIds(List<Integer> ids);
 
     void updateUserSkillPoint(Integer userId, String skillName, Integer points);
     List<User> getAllUsers();
+    void streamAllUsers(Consumer<User> consumer);
     List<User> searchUsers(String filter, User user);
 }
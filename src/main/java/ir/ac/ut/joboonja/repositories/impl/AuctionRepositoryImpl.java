@@ -1,44 +1,116 @@
 package ir.ac.ut.joboonja.repositories.impl;
 
-import ir.ac.ut.joboonja.database.PreparedQuery;
+import ir.ac.ut.joboonja.database.BatchResult;
+import ir.ac.ut.joboonja.database.DataVersions;
+import ir.ac.ut.joboonja.database.NamedQuery;
+import ir.ac.ut.joboonja.database.QueryRegistry;
+import ir.ac.ut.joboonja.database.ResultColumns;
+import ir.ac.ut.joboonja.database.RowMapper;
 import ir.ac.ut.joboonja.entities.Auction;
 import ir.ac.ut.joboonja.entities.Bid;
 import ir.ac.ut.joboonja.entities.Project;
 import ir.ac.ut.joboonja.repositories.AuctionRepository;
 
-import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 public class AuctionRepositoryImpl extends JDBCRepository<Auction> implements AuctionRepository {
+
+    private static final NamedQuery INSERT_BID = QueryRegistry.register("bid.insert",
+        "INSERT INTO Bid (projectId, userId, amount) VALUES (?, ?, ?);", "Bid");
+    private static final NamedQuery GET_BID = QueryRegistry.register("bid.byProjectAndUser",
+        "SELECT * FROM Bid WHERE projectId = ? AND userId = ?;", "Bid");
+    private static final NamedQuery GET_BIDS = QueryRegistry.register("bid.byProject",
+        "SELECT * FROM Bid WHERE projectId = ? ORDER BY userId;", "Bid");
+    private static final NamedQuery INSERT_AUCTION = QueryRegistry.register("auction.insert",
+        "INSERT IGNORE INTO Auction (projectId, userId) VALUES (?, ?);", "Auction");
+    private static final NamedQuery GET_AUCTION_WINNER = QueryRegistry.register("auction.winner",
+        "select * from Auction where projectId = ?;", "Auction");
+
+    /**
+     * Inserts the bid, returning false if the user has already bid on the project ({@code Bid_pk}).
+     */
+    @Override
+    public boolean insertBid(Bid bid) {
+        if (execUpdateUnlessDuplicate(INSERT_BID.bind(bid.getProjectId(), bid.getUserId(), bid.getBidAmount())) == 0)
+            return false;
+        DataVersions.bump(DataVersions.bids(bid.getProjectId()));
+        return true;
+    }
+
+    /**
+     * Inserts the bids with one multi-row {@code INSERT}. If one of them is a user's second bid on a project (stored,
+     * or earlier in {@code bids}), the statement inserts nothing and the bids are inserted one at a time, the
+     * duplicates being skipped. Returns, per bid, whether it was inserted. A plain {@code INSERT} rather than
+     * {@code INSERT IGNORE}, which would also turn a missing project or user into a skipped row.
+     */
     @Override
-    public void insertBid(Bid bid) {
-        String sql = String.format("INSERT INTO %s (projectId, userId, amount) VALUES (?, ?, ?);",
-            getTableName());
-        List<Object> params = Arrays.asList(bid.getProjectId(), bid.getUserId(), bid.getBidAmount());
-        execUpdate(new PreparedQuery(sql, params));
+    public List<Boolean> insertBids(List<Bid> bids) {
+        List<List<Object>> rows = new ArrayList<>(bids.size());
+        for (Bid bid: bids)
+            rows.add(Arrays.asList(bid.getProjectId(), bid.getUserId(), bid.getBidAmount()));
+        List<Boolean> inserted = execBatchInsertEach("bid.insertBatch", "INSERT INTO Bid (projectId, userId, amount)", rows, "Bid");
+        Set<String> bidOn = new HashSet<>();
+        for (int i = 0; i < inserted.size(); i++)
+            if (inserted.get(i))
+                bidOn.add(DataVersions.bids(bids.get(i).getProjectId()));
+        // one bump per project, written as one batch for the whole flush
+        DataVersions.bump(bidOn);
+        return inserted;
+    }
+
+    @Override
+    public Bid getBid(String projectId, Integer userId) {
+        Auction auction = findOne(GET_BID.bind(projectId, userId));
+        return auction == null ? null : auction.getOffers().get(0);
     }
 
     @Override
     public Auction getAuction(String id) {
-        String query = String.format("SELECT * FROM %s WHERE projectId = ?;", getTableName());
-        return findOne(new PreparedQuery(query, Collections.singletonList(id)));
+        return findOne(GET_BIDS.bind(id));
+    }
+
+    @Override
+    public List<Auction> getAuctions(List<String> projectIds) {
+        return findAllIn("bid.byProjects", "SELECT * FROM Bid WHERE projectId IN", " ORDER BY userId", projectIds, "Bid");
     }
 
     @Override
     public void insertAuction(Auction auction) {
-        String query = "INSERT IGNORE INTO Auction (projectId, userId) VALUES (?, ?);";
-        List<Object> params = Arrays.asList(auction.getProjectId(), auction.getWinnerId());
-        execUpdate(new PreparedQuery(query, params));
+        execUpdate(INSERT_AUCTION.bind(auction.getProjectId(), auction.getWinnerId()));
+    }
+
+    @Override
+    public BatchResult insertAuctions(List<Auction> auctions) {
+        List<List<Object>> rows = new ArrayList<>(auctions.size());
+        for (Auction auction: auctions)
+            rows.add(Arrays.asList(auction.getProjectId(), auction.getWinnerId()));
+        return execBatchInsert("auction.insertBatch", "INSERT IGNORE INTO Auction (projectId, userId)", rows, "Auction");
+    }
+
+    @Override
+    public List<Auction> getAuctionWinners(List<String> projectIds) {
+        return findAllIn("auction.byProjects", "SELECT * FROM Auction WHERE projectId IN", projectIds, "Auction");
+    }
+
+    /**
+     * Moves the projects' bids and results to the archive tables, and deletes the projects' bid versions.
+     */
+    @Override
+    public void archiveAuctions(List<String> projectIds) {
+        List<String> bidVersions = new ArrayList<>(projectIds.size());
+        for (String projectId: projectIds)
+            bidVersions.add(DataVersions.bids(projectId));
+        DataVersions.delete(bidVersions);
+        execUpdateIn("bid.archive", "insert ignore into BidArchive select * from Bid where projectId in", projectIds, "BidArchive");
+        execUpdateIn("auction.archive", "insert ignore into AuctionArchive select * from Auction where projectId in", projectIds, "AuctionArchive");
+        execUpdateIn("bid.delete", "delete from Bid where projectId in", projectIds, "Bid");
+        execUpdateIn("auction.delete", "delete from Auction where projectId in", projectIds, "Auction");
     }
 
     @Override
     public Auction getAuctionWinner(Project project) {
-        String query = "select * from Auction where projectId = ?;";
-        return findOne(new PreparedQuery(query, Collections.singletonList(project.getId())));
+        return findOne(GET_AUCTION_WINNER.bind(project.getId()));
     }
 
     @Override
@@ -47,38 +119,52 @@ public class AuctionRepositoryImpl extends JDBCRepository<Auction> implements Au
     }
 
     @Override
-    Auction toDomainModel(ResultSet resultSet) throws SQLException {
-        ResultSetMetaData rs = resultSet.getMetaData();
-        if(rs.getColumnCount() == 3){
-            Bid bid =  new Bid(
-                    resultSet.getInt("userId"),
-                    resultSet.getString("projectId"),
-                    resultSet.getInt("amount")
-            );
-            return new Auction(bid.getProjectId(), Collections.singletonList(bid));
-        }else{
-            return new Auction(
-                    resultSet.getString("projectId"),
-                    resultSet.getInt("userId")
-            );
+    RowMapper<Auction> compileRowMapper(ResultColumns columns) throws SQLException {
+        int projectId = columns.indexOf("projectId");
+        int userId = columns.indexOf("userId");
+        if (columns.contains("amount")) {
+            int amount = columns.indexOf("amount");
+            return resultSet -> {
+                Bid bid = new Bid(
+                        resultSet.getInt(userId),
+                        resultSet.getString(projectId),
+                        resultSet.getInt(amount)
+                );
+                List<Bid> offers = new ArrayList<>(1);
+                offers.add(bid);
+                return new Auction(bid.getProjectId(), offers);
+            };
         }
+        return resultSet -> new Auction(
+                resultSet.getString(projectId),
+                resultSet.getInt(userId)
+        );
+    }
+
+    /**
+     * Folds bid rows into one auction per project, in first-seen order; winner rows pass through as they are.
+     */
+    @Override
+    List<Auction> merge(List<Auction> rawResult) {
+        Map<String, Auction> auctions = new LinkedHashMap<>();
+        for (Auction row: rawResult) {
+            Auction auction = auctions.get(row.getProjectId());
+            if (auction == null || row.getOffers() == null)
+                auctions.put(row.getProjectId(), row);
+            else
+                mergeRow(auction, row);
+        }
+        return new ArrayList<>(auctions.values());
+    }
+
+    @Override
+    boolean mergeRow(Auction parent, Auction row) {
+        if (!parent.getProjectId().equals(row.getProjectId()) || parent.getOffers() == null || row.getOffers() == null)
+            return false;
+        parent.getOffers().addAll(row.getOffers());
+        return true;
     }
 
-//    @Override
-//    List<Auction> merge(List<Auction> rawResult) {
-//        Map<String, List<Auction>> auctions = rawResult.stream().collect(groupingBy(Auction::getProjectId));
-//        LinkedList<Auction> result = new LinkedList<>();
-//        for (String projectId: auctions.keySet()) {
-//            LinkedList<Bid> offers = new LinkedList<>();
-//            for (Auction a: auctions.get(projectId))
-//                offers.add(a.getOffers().get(0));
-//
-//            Auction auction = auctions.get(projectId).get(0);
-//            auction.setOffers(offers);
-//            result.add(auction);
-//        }
-//        return result;
-//    }
     public static String getCreateAuctionScript(){
         return "create table if not exists Auction\n" +
                 "(\n" +
@@ -96,6 +182,30 @@ public class AuctionRepositoryImpl extends JDBCRepository<Auction> implements Au
                 "\n";
     }
 
+    public static String getCreateBidArchiveScript() {
+        return "create table if not exists BidArchive\n" +
+                "(\n" +
+                "\tprojectId varchar(36) not null,\n" +
+                "\tuserId integer not null,\n" +
+                "\tamount integer null,\n" +
+                "\tconstraint BidArchive_pk\n" +
+                "\t\tprimary key (projectId, userId)\n" +
+                ");\n" +
+                "\n";
+    }
+
+    public static String getCreateAuctionArchiveScript() {
+        return "create table if not exists AuctionArchive\n" +
+                "(\n" +
+                "\tprojectId varchar(36) not null,\n" +
+                "\tuserId integer null,\n" +
+                "\tconstraint AuctionArchive_pk\n" +
+                "\t\tprimary key (projectId),\n" +
+                "\tindex AuctionArchive_userId_index (userId)\n" +
+                ");\n" +
+                "\n";
+    }
+
     public static String getCreateScript() {
         return "create table if not exists Bid\n" +
                 "(\n" +
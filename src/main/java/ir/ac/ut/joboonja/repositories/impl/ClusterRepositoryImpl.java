@@ -0,0 +1,101 @@
+package ir.ac.ut.joboonja.repositories.impl;
+
+import ir.ac.ut.joboonja.database.NamedQuery;
+import ir.ac.ut.joboonja.database.QueryRegistry;
+import ir.ac.ut.joboonja.database.ResultColumns;
+import ir.ac.ut.joboonja.database.RowMapper;
+import ir.ac.ut.joboonja.entities.NodeHeartbeat;
+import ir.ac.ut.joboonja.repositories.ClusterRepository;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Node heartbeats and job leases. Times are taken from the database clock, so nodes with skewed
+ * clocks still agree on who is alive and when a lease expires.
+ */
+public class ClusterRepositoryImpl extends JDBCRepository<NodeHeartbeat> implements ClusterRepository {
+
+    private static final NamedQuery HEARTBEAT = QueryRegistry.register("node.heartbeat",
+        "INSERT INTO NodeHeartbeat (nodeId, lastSeen) VALUES (?, " + NOW_MILLIS + ") " +
+        "ON DUPLICATE KEY UPDATE lastSeen = VALUES(lastSeen);", "NodeHeartbeat");
+    private static final NamedQuery REMOVE_NODE = QueryRegistry.register("node.remove",
+        "DELETE FROM NodeHeartbeat WHERE nodeId = ?;", "NodeHeartbeat");
+    private static final NamedQuery GET_LIVE_NODES = QueryRegistry.register("node.live",
+        "SELECT * FROM NodeHeartbeat WHERE lastSeen >= " + NOW_MILLIS + " - ? ORDER BY nodeId;", "NodeHeartbeat");
+    private static final NamedQuery RENEW_LEASE = QueryRegistry.register("lease.renew",
+        "UPDATE JobLease SET owner = ?, expiresAt = " + NOW_MILLIS + " + ? " +
+        "WHERE name = ? AND (owner = ? OR expiresAt < " + NOW_MILLIS + ");", "JobLease");
+    private static final NamedQuery INSERT_LEASE = QueryRegistry.register("lease.insert",
+        "INSERT INTO JobLease (name, owner, expiresAt) VALUES (?, ?, " + NOW_MILLIS + " + ?);", "JobLease");
+    private static final NamedQuery RELEASE_LEASE = QueryRegistry.register("lease.release",
+        "UPDATE JobLease SET expiresAt = 0 WHERE name = ? AND owner = ?;", "JobLease");
+
+    @Override
+    public void heartbeat(String nodeId) {
+        execUpdate(HEARTBEAT.bind(nodeId));
+    }
+
+    @Override
+    public void removeNode(String nodeId) {
+        execUpdate(REMOVE_NODE.bind(nodeId));
+    }
+
+    /**
+     * Nodes that sent a heartbeat within the last {@code ttlMillis}, ordered by id.
+     */
+    @Override
+    public List<NodeHeartbeat> getLiveNodes(long ttlMillis) {
+        return findAll(GET_LIVE_NODES.bind(ttlMillis));
+    }
+
+    /**
+     * Takes or renews the lease for {@code ttlMillis}. Succeeds if the lease doesn't exist yet, has expired,
+     * or is already held by {@code owner}.
+     */
+    @Override
+    public boolean acquireLease(String name, String owner, long ttlMillis) {
+        if (execUpdate(RENEW_LEASE.bind(owner, ttlMillis, name, owner)) > 0)
+            return true;
+        return execUpdateUnlessDuplicate(INSERT_LEASE.bind(name, owner, ttlMillis)) > 0;
+    }
+
+    @Override
+    public void releaseLease(String name, String owner) {
+        execUpdate(RELEASE_LEASE.bind(name, owner));
+    }
+
+    @Override
+    String getTableName() {
+        return "NodeHeartbeat";
+    }
+
+    @Override
+    RowMapper<NodeHeartbeat> compileRowMapper(ResultColumns columns) throws SQLException {
+        int nodeId = columns.indexOf("nodeId");
+        int lastSeen = columns.indexOf("lastSeen");
+        return resultSet -> new NodeHeartbeat(
+                resultSet.getString(nodeId),
+                resultSet.getLong(lastSeen)
+        );
+    }
+
+    public static String getCreateScript() {
+        return "create table if not exists NodeHeartbeat\n" +
+                "(\n" +
+                "\tnodeId varchar(64) not null\n" +
+                "\t\tprimary key,\n" +
+                "\tlastSeen bigint not null\n" +
+                ");";
+    }
+
+    public static String getCreateJobLeaseScript() {
+        return "create table if not exists JobLease\n" +
+                "(\n" +
+                "\tname varchar(64) not null\n" +
+                "\t\tprimary key,\n" +
+                "\towner varchar(64) not null,\n" +
+                "\texpiresAt bigint not null\n" +
+                ");";
+    }
+}
@@ -0,0 +1,102 @@
+package ir.ac.ut.joboonja.repositories.impl;
+
+import ir.ac.ut.joboonja.database.NamedQuery;
+import ir.ac.ut.joboonja.database.QueryRegistry;
+import ir.ac.ut.joboonja.database.ResultColumns;
+import ir.ac.ut.joboonja.database.RowMapper;
+import ir.ac.ut.joboonja.entities.DataVersion;
+import ir.ac.ut.joboonja.repositories.DataVersionRepository;
+
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Change counters shared by every node. A bump is written in the writer's transaction, so it becomes visible
+ * together with the change it counts; times come from the database clock.
+ */
+public class DataVersionRepositoryImpl extends JDBCRepository<DataVersion> implements DataVersionRepository {
+
+    private static final String BUMP_VALUES = "(?, 1, " + NOW_MILLIS + ")";
+    private static final String BUMP_UPDATE =
+        " ON DUPLICATE KEY UPDATE counter = counter + 1, lastModified = GREATEST(lastModified, VALUES(lastModified));";
+    private static final NamedQuery BUMP = QueryRegistry.register("dataVersion.bump",
+        "INSERT INTO DataVersion (dataSet, counter, lastModified) VALUES " + BUMP_VALUES + BUMP_UPDATE, "DataVersion");
+    private static final NamedQuery CHANGED_WITHIN = QueryRegistry.register("dataVersion.changedWithin",
+        "SELECT * FROM DataVersion WHERE lastModified >= " + NOW_MILLIS + " - ?;", "DataVersion");
+
+    @Override
+    public void bump(String dataSet) {
+        execUpdate(BUMP.bind(dataSet));
+    }
+
+    /**
+     * Bumps the data sets with one statement, in a fixed order so that concurrent bumps don't deadlock. The list
+     * is padded to a power of two with its last data set, like an IN list; bumping that one twice is harmless,
+     * a counter only has to move.
+     */
+    @Override
+    public void bump(Collection<String> dataSets) {
+        if (dataSets.isEmpty())
+            return;
+        List<Object> padded = new ArrayList<>(new TreeSet<>(dataSets));
+        int rowCount = Integer.highestOneBit(padded.size() * 2 - 1);
+        while (padded.size() < rowCount)
+            padded.add(padded.get(padded.size() - 1));
+        NamedQuery query = QueryRegistry.shape("dataVersion.bumpAll[" + rowCount + "]", () -> {
+            StringBuilder sql = new StringBuilder("INSERT INTO DataVersion (dataSet, counter, lastModified) VALUES ");
+            for (int i = 0; i < rowCount; i++)
+                sql.append(i == 0 ? "" : ",").append(BUMP_VALUES);
+            return sql.append(BUMP_UPDATE).toString();
+        }, "DataVersion");
+        execUpdate(query.bind(padded));
+    }
+
+    @Override
+    public void delete(List<String> dataSets) {
+        execUpdateIn("dataVersion.delete", "DELETE FROM DataVersion WHERE dataSet IN", dataSets, "DataVersion");
+    }
+
+    @Override
+    public List<DataVersion> getVersions(List<String> dataSets) {
+        return findAllIn("dataVersion.byDataSets", "SELECT * FROM DataVersion WHERE dataSet IN", dataSets, "DataVersion");
+    }
+
+    /**
+     * Data sets bumped within the last {@code windowMillis}.
+     */
+    @Override
+    public List<DataVersion> getChangedWithin(long windowMillis) {
+        return findAll(CHANGED_WITHIN.bind(windowMillis));
+    }
+
+    @Override
+    String getTableName() {
+        return "DataVersion";
+    }
+
+    @Override
+    RowMapper<DataVersion> compileRowMapper(ResultColumns columns) throws SQLException {
+        int dataSet = columns.indexOf("dataSet");
+        int counter = columns.indexOf("counter");
+        int lastModified = columns.indexOf("lastModified");
+        return resultSet -> new DataVersion(
+                resultSet.getString(dataSet),
+                resultSet.getLong(counter),
+                resultSet.getLong(lastModified)
+        );
+    }
+
+    public static String getCreateScript() {
+        return "create table if not exists DataVersion\n" +
+                "(\n" +
+                "\tdataSet varchar(64) not null\n" +
+                "\t\tprimary key,\n" +
+                "\tcounter bigint not null,\n" +
+                "\tlastModified bigint not null\n" +
+                ");";
+    }
+
+    public static String getCreateLastModifiedIndexScript() {
+        return "create index DataVersion_lastModified_index on DataVersion (lastModified);";
+    }
+}
@@ -1,38 +1,40 @@
 package ir.ac.ut.joboonja.repositories.impl;
 
-import ir.ac.ut.joboonja.database.PreparedQuery;
+import ir.ac.ut.joboonja.database.NamedQuery;
+import ir.ac.ut.joboonja.database.QueryRegistry;
+import ir.ac.ut.joboonja.database.ResultColumns;
+import ir.ac.ut.joboonja.database.RowMapper;
 import ir.ac.ut.joboonja.entities.Endorse;
 import ir.ac.ut.joboonja.repositories.EndorseRepository;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 public class EndorseRepositoryImpl extends JDBCRepository<Endorse> implements EndorseRepository {
+
+    private static final NamedQuery INSERT_ENDORSE = QueryRegistry.register("endorse.insert",
+        "INSERT INTO Endorse " +
+        "(endorserId, endorsedId, skillName) " +
+        "VALUES (?, ?, ?);", "Endorse");
+    private static final NamedQuery ENDORSE_EXISTS = QueryRegistry.register("endorse.exists",
+        "SELECT " +
+        "EXISTS(SELECT * FROM Endorse WHERE endorserId = ? AND endorsedId = ? AND skillName = ?) as result;", "Endorse");
+    private static final NamedQuery GET_ENDORSES = QueryRegistry.register("endorse.all",
+        "SELECT * FROM Endorse", "Endorse");
+
     @Override
     public void insertEndorse(Endorse endorse) {
-        String sql = String.format("INSERT INTO %s " +
-                "(endorserId, endorsedId, skillName) " +
-                "VALUES (?, ?, ?);",
-            getTableName());
-        List<Object> params = Arrays.asList(endorse.getEndorserId(), endorse.getEndorsedId(), endorse.getSkillName());
-        execUpdate(new PreparedQuery(sql, params));
+        execUpdate(INSERT_ENDORSE.bind(endorse.getEndorserId(), endorse.getEndorsedId(), endorse.getSkillName()));
     }
 
     @Override
     public boolean endorseExists(Endorse endorse) {
-        String query = String.format("SELECT " +
-            "EXISTS(SELECT * FROM %s WHERE endorserId = ? AND endorsedId = ? AND skillName = ?) as result;",
-            getTableName());
-        List<Object> params = Arrays.asList(endorse.getEndorserId(), endorse.getEndorsedId(), endorse.getSkillName());
-        return exists(new PreparedQuery(query, params));
+        return exists(ENDORSE_EXISTS.bind(endorse.getEndorserId(), endorse.getEndorsedId(), endorse.getSkillName()));
     }
 
     @Override
     public List<Endorse> getEndorses(Integer endorserId) {
-        return findAll(new PreparedQuery("SELECT * FROM " + getTableName(), Collections.emptyList()));
+        return findAll(GET_ENDORSES.bind());
     }
 
     @Override
@@ -41,11 +43,14 @@ public class EndorseRepositoryImpl extends JDBCRepository<Endorse> implements En
     }
 
     @Override
-    Endorse toDomainModel(ResultSet resultSet) throws SQLException {
-        return new Endorse(
-            resultSet.getInt("endorserId"),
-            resultSet.getInt("endorsedId"),
-            resultSet.getString("skillName")
+    RowMapper<Endorse> compileRowMapper(ResultColumns columns) throws SQLException {
+        int endorserId = columns.indexOf("endorserId");
+        int endorsedId = columns.indexOf("endorsedId");
+        int skillName = columns.indexOf("skillName");
+        return resultSet -> new Endorse(
+            resultSet.getInt(endorserId),
+            resultSet.getInt(endorsedId),
+            resultSet.getString(skillName)
         );
     }
 
@@ -1,24 +1,76 @@
 package ir.ac.ut.joboonja.repositories.impl;
 
+import ir.ac.ut.joboonja.database.BatchResult;
+import ir.ac.ut.joboonja.database.NamedQuery;
 import ir.ac.ut.joboonja.database.PreparedQuery;
+import ir.ac.ut.joboonja.database.QueryCache;
+import ir.ac.ut.joboonja.database.QueryRegistry;
+import ir.ac.ut.joboonja.database.QueryStats;
 import ir.ac.ut.joboonja.database.ResourcePool;
+import ir.ac.ut.joboonja.database.ResultColumns;
+import ir.ac.ut.joboonja.database.RowMapper;
+import ir.ac.ut.joboonja.database.UnitOfWork;
 import ir.ac.ut.joboonja.exceptions.BadRequestException;
+import ir.ac.ut.joboonja.utilities.Config;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 abstract class JDBCRepository<E> {
 
     private final static int SQLITE_CONSTRAINT_UNIQUE = 19;
+    private final static int MYSQL_DUPLICATE_ENTRY = 1062;
+    private final static String SQL_STATE_UNIQUE_VIOLATION = "23505";
+    private final static int BATCH_CHUNK_SIZE = Config.getPositiveInt("joboonja.batch.chunkSize", 500);
+    private final static int STREAM_FETCH_SIZE = Config.getPositiveInt("joboonja.query.fetchSize", 200);
+    private final static int IN_CHUNK_SIZE = 512;
+
+    final static String NOW_MILLIS = ResourcePool.NOW_MILLIS;
+
+    private final ConcurrentHashMap<String, RowMapper<E>> rowMappers = new ConcurrentHashMap<>();
 
     abstract String getTableName();
-    abstract E toDomainModel(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Builds the mapper for one result shape. Column indexes should be looked up here, once,
+     * so that the returned mapper only does positional reads.
+     */
+    abstract RowMapper<E> compileRowMapper(ResultColumns columns) throws SQLException;
+
+    private RowMapper<E> getRowMapper(String sql, ResultSet resultSet) throws SQLException {
+        RowMapper<E> rowMapper = rowMappers.get(sql);
+        if (rowMapper == null) {
+            rowMapper = compileRowMapper(new ResultColumns(resultSet.getMetaData()));
+            rowMappers.putIfAbsent(sql, rowMapper);
+        }
+        return rowMapper;
+    }
 
     List<E> merge(List<E> rawResult) {
         return rawResult;
     }
 
+    /**
+     * Folds a joined child row into the entity read just before it. Streaming queries order by the
+     * parent key, so returning false means {@code parent} is complete and {@code row} starts the next one.
+     */
+    boolean mergeRow(E parent, E row) {
+        return false;
+    }
+
+    /**
+     * Copies an entity read from {@link QueryCache}, so callers can't change what later readers see.
+     * Repositories with cached queries override this.
+     */
+    E copy(E entity) {
+        return entity;
+    }
+
     private void fillPreparedStatement(PreparedStatement preparedStatement, List<Object> params) throws SQLException {
         for (int i = 0; i < params.size(); i++)
             preparedStatement.setObject(i+1, params.get(i));
@@ -26,62 +78,286 @@ abstract class JDBCRepository<E> {
 
     private List<E> execQuery(PreparedQuery query) {
         LinkedList<E> result = new LinkedList<>();
+        QueryStats.Timer timer = QueryStats.start(query);
+        Connection connection = null;
         try {
-            Connection connection = ResourcePool.getConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(query.getPreparedSql());
-            fillPreparedStatement(preparedStatement, query.getParameters());
-            ResultSet resultSet = preparedStatement.executeQuery();
+            connection = UnitOfWork.getReadConnection();
+            timer.connected();
+            try (PreparedStatement preparedStatement = ResourcePool.prepareStatement(connection, query.getPreparedSql())) {
+                fillPreparedStatement(preparedStatement, query.getParameters());
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    RowMapper<E> rowMapper = getRowMapper(query.getPreparedSql(), resultSet);
+                    while (resultSet.next()) {
+                        result.add(rowMapper.map(resultSet));
+                    }
+                }
+            }
+            timer.rows(result.size());
+        } catch (SQLException e) {
+            timer.failed();
+            ResourcePool.readFailed(connection, e);
+            handleSQLException(e);
+        } finally {
+            UnitOfWork.releaseConnection(connection);
+            timer.stop();
+        }
+        return result;
+    }
 
-            while(resultSet.next()) {
-                result.add(toDomainModel(resultSet));
+    /**
+     * Runs a query whose first column is a string key, e.g. an id, and returns those keys.
+     */
+    List<String> findKeys(PreparedQuery query) {
+        List<String> result = new ArrayList<>();
+        QueryStats.Timer timer = QueryStats.start(query);
+        Connection connection = null;
+        try {
+            connection = UnitOfWork.getReadConnection();
+            timer.connected();
+            try (PreparedStatement preparedStatement = ResourcePool.prepareStatement(connection, query.getPreparedSql())) {
+                fillPreparedStatement(preparedStatement, query.getParameters());
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next())
+                        result.add(resultSet.getString(1));
+                }
             }
-            resultSet.close();
-            preparedStatement.close();
-            connection.close();
+            timer.rows(result.size());
         } catch (SQLException e) {
+            timer.failed();
+            ResourcePool.readFailed(connection, e);
             handleSQLException(e);
+        } finally {
+            UnitOfWork.releaseConnection(connection);
+            timer.stop();
         }
         return result;
     }
 
-    void execUpdate(PreparedQuery query) {
+    void stream(PreparedQuery query, Consumer<E> consumer) {
+        QueryStats.Timer timer = QueryStats.start(query);
+        Connection connection = null;
         try {
-            Connection connection = ResourcePool.getConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(query.getPreparedSql());
-            fillPreparedStatement(preparedStatement, query.getParameters());
-            preparedStatement.executeUpdate();
-            preparedStatement.close();
-            connection.close();
+            connection = UnitOfWork.getReadConnection();
+            timer.connected();
+            try (PreparedStatement preparedStatement = ResourcePool.prepareStatement(connection, query.getPreparedSql())) {
+                preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+                fillPreparedStatement(preparedStatement, query.getParameters());
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    RowMapper<E> rowMapper = getRowMapper(query.getPreparedSql(), resultSet);
+                    E pending = null;
+                    long rowCount = 0;
+                    while (resultSet.next()) {
+                        rowCount++;
+                        E row = rowMapper.map(resultSet);
+                        if (pending != null && mergeRow(pending, row))
+                            continue;
+                        if (pending != null)
+                            consumer.accept(pending);
+                        pending = row;
+                    }
+                    if (pending != null)
+                        consumer.accept(pending);
+                    timer.rows(rowCount);
+                }
+            }
         } catch (SQLException e) {
+            timer.failed();
+            ResourcePool.readFailed(connection, e);
             handleSQLException(e);
+        } finally {
+            UnitOfWork.releaseConnection(connection);
+            timer.stop();
         }
     }
 
+    int execUpdate(PreparedQuery query) {
+        return execUpdate(query, false);
+    }
+
+    /**
+     * Like {@link #execUpdate(PreparedQuery)}, but an insert that would duplicate a unique key
+     * affects no rows instead of failing.
+     */
+    int execUpdateUnlessDuplicate(PreparedQuery query) {
+        return execUpdate(query, true);
+    }
+
+    private int execUpdate(PreparedQuery query, boolean duplicatesAllowed) {
+        int affectedRows = 0;
+        QueryStats.Timer timer = QueryStats.start(query);
+        Connection connection = null;
+        try {
+            connection = UnitOfWork.getConnection();
+            timer.connected();
+            try (PreparedStatement preparedStatement = ResourcePool.prepareStatement(connection, query.getPreparedSql())) {
+                fillPreparedStatement(preparedStatement, query.getParameters());
+                affectedRows = preparedStatement.executeUpdate();
+                QueryCache.invalidate(query.getTables());
+                UnitOfWork.recordWrite(query.getTables());
+            }
+            timer.rows(affectedRows);
+        } catch (SQLException e) {
+            if (!duplicatesAllowed || !isDuplicateKey(e)) {
+                timer.failed();
+                handleSQLException(e);
+            }
+        } finally {
+            UnitOfWork.releaseConnection(connection);
+            timer.stop();
+        }
+        return affectedRows;
+    }
+
+    /**
+     * MySQL reports a duplicate key as error 1062 with the generic SQLState 23000; H2, which the tests run on,
+     * uses the standard 23505.
+     */
+    private static boolean isDuplicateKey(SQLException e) {
+        return e.getErrorCode() == MYSQL_DUPLICATE_ENTRY || SQL_STATE_UNIQUE_VIOLATION.equals(e.getSQLState());
+    }
+
+    /**
+     * Inserts rows with one multi-row {@code VALUES} statement per chunk of {@code joboonja.batch.chunkSize} rows.
+     * {@code insertSql} is the statement up to the values clause, e.g. {@code "INSERT IGNORE INTO Skill (name)"};
+     * rows that {@code INSERT IGNORE} drops are reported as skipped.
+     */
+    BatchResult execBatchInsert(String name, String insertSql, List<List<Object>> rows, String table) {
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += BATCH_CHUNK_SIZE)
+            inserted += insertChunk(name, insertSql, rows.subList(from, Math.min(rows.size(), from + BATCH_CHUNK_SIZE)), table, false);
+        return new BatchResult(inserted, rows.size() - inserted);
+    }
+
+    /**
+     * Like {@link #execBatchInsert}, for a plain {@code INSERT} whose callers need each row's outcome. A chunk with a
+     * row that would duplicate a unique key inserts nothing, and its rows are then inserted one at a time. Returns,
+     * per row, whether it was inserted; any other failure, a foreign key say, throws.
+     */
+    List<Boolean> execBatchInsertEach(String name, String insertSql, List<List<Object>> rows, String table) {
+        List<Boolean> inserted = new ArrayList<>(rows.size());
+        for (int from = 0; from < rows.size(); from += BATCH_CHUNK_SIZE) {
+            List<List<Object>> chunk = rows.subList(from, Math.min(rows.size(), from + BATCH_CHUNK_SIZE));
+            boolean all = insertChunk(name, insertSql, chunk, table, true) == chunk.size();
+            for (List<Object> row: chunk)
+                inserted.add(all || insertChunk(name, insertSql, Collections.singletonList(row), table, true) > 0);
+        }
+        return inserted;
+    }
+
+    private int insertChunk(String name, String insertSql, List<List<Object>> chunk, String table, boolean duplicatesAllowed) {
+        List<Object> params = new ArrayList<>();
+        for (List<Object> row: chunk)
+            params.addAll(row);
+        int columnCount = chunk.get(0).size();
+        int rowCount = chunk.size();
+        NamedQuery query = QueryRegistry.shape(name + "[" + rowCount + "]",
+            () -> insertSql + " VALUES " + valuesClause(columnCount, rowCount), table);
+        return execUpdate(query.bind(params), duplicatesAllowed);
+    }
+
+    private static String valuesClause(int columnCount, int rowCount) {
+        StringBuilder tuple = new StringBuilder("(");
+        for (int i = 0; i < columnCount; i++)
+            tuple.append(i == 0 ? "?" : ",?");
+        tuple.append(")");
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0)
+                values.append(",");
+            values.append(tuple);
+        }
+        return values.toString();
+    }
+
+    /**
+     * Runs {@code sqlPrefix} followed by an {@code IN (...)} list over {@code ids}, in chunks. Each IN list is
+     * padded to a power of two with its last id so only a handful of statement shapes get prepared.
+     */
+    List<E> findAllIn(String name, String sqlPrefix, List<?> ids, String... tables) {
+        return findAllIn(name, sqlPrefix, "", ids, tables);
+    }
+
+    /**
+     * Like {@link #findAllIn}, with {@code sqlSuffix} (an {@code ORDER BY}, say) after the IN list.
+     */
+    List<E> findAllIn(String name, String sqlPrefix, String sqlSuffix, List<?> ids, String... tables) {
+        List<E> result = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE)
+            result.addAll(findAll(bindIn(name, sqlPrefix, sqlSuffix, ids.subList(from, Math.min(ids.size(), from + IN_CHUNK_SIZE)), tables)));
+        return result;
+    }
+
+    /**
+     * Like {@link #findAllIn}, for a query whose first column is a string key.
+     */
+    List<String> findKeysIn(String name, String sqlPrefix, List<?> ids, String... tables) {
+        List<String> result = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE)
+            result.addAll(findKeys(bindIn(name, sqlPrefix, "", ids.subList(from, Math.min(ids.size(), from + IN_CHUNK_SIZE)), tables)));
+        return result;
+    }
+
+    /**
+     * Like {@link #findAllIn}, for an update; padding repeats ids, which doesn't change what an IN list matches.
+     */
+    int execUpdateIn(String name, String sqlPrefix, List<?> ids, String... tables) {
+        int affectedRows = 0;
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE)
+            affectedRows += execUpdate(bindIn(name, sqlPrefix, "", ids.subList(from, Math.min(ids.size(), from + IN_CHUNK_SIZE)), tables));
+        return affectedRows;
+    }
+
+    private static PreparedQuery bindIn(String name, String sqlPrefix, String sqlSuffix, List<?> chunk, String... tables) {
+        int size = Integer.highestOneBit(chunk.size() * 2 - 1);
+        NamedQuery query = QueryRegistry.shape(name + "[" + size + "]",
+            () -> sqlPrefix + " (" + String.join(",", Collections.nCopies(size, "?")) + ")" + sqlSuffix, tables);
+        List<Object> params = new ArrayList<>(size);
+        params.addAll(chunk);
+        while (params.size() < size)
+            params.add(chunk.get(chunk.size() - 1));
+        return query.bind(params);
+    }
+
     List<E> findAll(PreparedQuery query) {
-        return merge(execQuery(query));
+        if (!query.isCacheable())
+            return merge(execQuery(query));
+        List<E> cached = QueryCache.get(query, () -> Collections.unmodifiableList(merge(execQuery(query))));
+        List<E> result = new ArrayList<>(cached.size());
+        for (E entity: cached)
+            result.add(copy(entity));
+        return result;
     }
 
     E findOne(PreparedQuery query) {
-        List<E> result = execQuery(query);
+        List<E> result = findAll(query);
         if (result.isEmpty())
             return null;
-        return merge(result).get(0);
+        return result.get(0);
     }
 
     boolean exists(PreparedQuery query) {
         boolean res;
+        QueryStats.Timer timer = QueryStats.start(query);
+        Connection connection = null;
         try {
-            Connection connection = ResourcePool.getConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(query.getPreparedSql());
-            fillPreparedStatement(preparedStatement, query.getParameters());
-            ResultSet resultSet = preparedStatement.executeQuery();
-            resultSet.next();
-            res = resultSet.getBoolean("result");
-            preparedStatement.close();
-            connection.close();
+            connection = UnitOfWork.getReadConnection();
+            timer.connected();
+            try (PreparedStatement preparedStatement = ResourcePool.prepareStatement(connection, query.getPreparedSql())) {
+                fillPreparedStatement(preparedStatement, query.getParameters());
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    resultSet.next();
+                    res = resultSet.getBoolean(1);
+                }
+            }
+            timer.rows(1);
         } catch (SQLException e) {
+            timer.failed();
+            ResourcePool.readFailed(connection, e);
             e.printStackTrace();
             throw new BadRequestException("Something is wrong in db: " + e.getMessage());
+        } finally {
+            UnitOfWork.releaseConnection(connection);
+            timer.stop();
         }
         return res;
     }
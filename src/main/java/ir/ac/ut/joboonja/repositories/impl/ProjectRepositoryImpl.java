@@ -1,97 +1,144 @@
 package ir.ac.ut.joboonja.repositories.impl;
 
-import ir.ac.ut.joboonja.database.PreparedQuery;
+import ir.ac.ut.joboonja.database.BatchResult;
+import ir.ac.ut.joboonja.database.DataVersions;
+import ir.ac.ut.joboonja.database.NamedQuery;
+import ir.ac.ut.joboonja.database.QueryRegistry;
+import ir.ac.ut.joboonja.database.ResultColumns;
+import ir.ac.ut.joboonja.database.RowMapper;
 import ir.ac.ut.joboonja.entities.Project;
 import ir.ac.ut.joboonja.entities.Skill;
-import ir.ac.ut.joboonja.entities.User;
 import ir.ac.ut.joboonja.repositories.ProjectRepository;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.groupingBy;
 
 public class ProjectRepositoryImpl extends JDBCRepository<Project> implements ProjectRepository {
 
-    private PreparedQuery generateQuery(
-        Integer userId, String filter, Integer pageNumber, Integer pageSize, String projectId
-    ) {
-        ArrayList<Object> params = new ArrayList<>();
-        params.add(userId);
-        String like = "";
-        if (filter != null) {
-            like = "where proj.title LIKE ? or proj.description LIKE ?";
-            params.add("%"+filter+"%");
-            params.add("%"+filter+"%");
-        }
-
-        String where = "";
-        if (projectId != null) {
-            where = "WHERE proj.id = ?";
-            params.add(projectId);
-        }
+    private static final NamedQuery GET_ALL_PROJECTS = QueryRegistry.register("project.all",
+        "select * from Project p, ProjectSkill ps where ps.projectId = p.id order by p.id", "Project", "ProjectSkill");
+    private static final NamedQuery GET_PROJECTS_CREATED_AFTER = QueryRegistry.register("project.createdAfter",
+        "select * from Project p, ProjectSkill ps where ps.projectId = p.id and p.creationDate > ? order by p.id", "Project", "ProjectSkill");
+    private static final NamedQuery GET_UNDECIDED_PROJECTS = QueryRegistry.register("project.undecided",
+        "select * from Project p join ProjectSkill ps on ps.projectId = p.id " +
+        "where not exists (select * from Auction a where a.projectId = p.id) order by p.deadline, p.id", "Project", "ProjectSkill", "Auction");
+    private static final NamedQuery GET_ARCHIVABLE_PROJECT_IDS = QueryRegistry.register("project.archivable",
+        "select p.id from Project p where p.deadline < ? and exists (select * from Auction a where a.projectId = p.id) " +
+        "order by p.deadline, p.id limit ?", "Project", "Auction");
+    private static final NamedQuery GET_LATEST_ARCHIVED_AT = QueryRegistry.register("project.latestArchivedAt",
+        "select coalesce(max(archivedAt), 0) from ProjectArchive", "ProjectArchive");
+    private static final NamedQuery GET_PROJECT_IDS_ARCHIVED_AFTER = QueryRegistry.register("project.archivedAfter",
+        "select id from ProjectArchive where archivedAt > ?", "ProjectArchive");
+    private static final NamedQuery GET_ARCHIVED_PROJECTS_WON_BY = QueryRegistry.registerCached("project.archivedWonBy",
+        "select * from AuctionArchive a join ProjectArchive p on p.id = a.projectId join ProjectSkillArchive ps on ps.projectId = p.id " +
+        "where a.userId = ? order by p.deadline desc, p.id desc", "AuctionArchive", "ProjectArchive", "ProjectSkillArchive");
+    private static final NamedQuery INSERT_PROJECT = QueryRegistry.register("project.insert",
+        "insert ignore into Project (id,title,description,imageUrl,budget,deadline,creationDate) values ( ?,?,?,?,?,?,? )", "Project");
+    private static final NamedQuery INSERT_PROJECT_SKILL = QueryRegistry.register("project.insertSkill",
+        "insert ignore into ProjectSkill(projectId,skillName,point) values(?,?,?)", "ProjectSkill");
 
-        String limit = "";
-        if (pageNumber != null && pageSize != null) {
-            limit = "LIMIT ?, ?";
-            params.add(pageNumber*pageSize);
-            params.add(pageSize);
-        }
-
-        String query =
-            "select * FROM (SELECT * FROM (SELECT * FROM Project p where not exists\n" +
-            "(select * from ProjectSkill ps where ps.projectId = p.id and not exists\n" +
-            "(select * from User u, UserSkill us\n" +
-            "where u.id = ? and us.userId = u.id and us.skillName = ps.skillName and us.points >= ps.point)\n" +
-            ")) as proj " + like + where + " ORDER BY proj.creationDate DESC " + limit + ") as result join ProjectSkill on result.id = projectId;\n";
-        return new PreparedQuery(query, params);
+    @Override
+    public void streamAllProjects(Consumer<Project> consumer) {
+        stream(GET_ALL_PROJECTS.bind(), consumer);
     }
 
     @Override
-    public List<Project> getAllProjects(User user) {
-        return findAll(generateQuery(user.getId(), null, null, null, null));
+    public void streamProjectsCreatedAfter(long creationDate, Consumer<Project> consumer) {
+        stream(GET_PROJECTS_CREATED_AFTER.bind(creationDate), consumer);
     }
 
     @Override
-    public List<Project> getAllProjects() {
-        String query = "select * from Project p, ProjectSkill ps where ps.projectId = p.id";
-        return findAll(new PreparedQuery(query, Collections.emptyList()));
+    public void streamUndecidedProjects(Consumer<Project> consumer) {
+        stream(GET_UNDECIDED_PROJECTS.bind(), consumer);
     }
 
     @Override
     public void insertProject(Project project) {
-        String sql = String.format("insert ignore into %s (id,title,description,imageUrl,budget,deadline,creationDate) values ( ?,?,?,?,?,?,? )", getTableName());
-        List<Object> params = Arrays.asList(project.getId(), project.getTitle(), project.getDescription(), project.getImageUrl(), project.getBudget(), project.getDeadline(), project.getCreationDate());
-        execUpdate(new PreparedQuery(sql, params));
+        execUpdate(INSERT_PROJECT.bind(project.getId(), project.getTitle(), project.getDescription(), project.getImageUrl(), project.getBudget(), project.getDeadline(), project.getCreationDate()));
 
         List<Skill> skills = project.getSkills();
         for(Skill skill: skills){
-            sql = "insert ignore into ProjectSkill(projectId,skillName,point) values(?,?,?)";
-            params = Arrays.asList(project.getId(), skill.getName(), skill.getPoint());
-            execUpdate(new PreparedQuery(sql, params));
+            execUpdate(INSERT_PROJECT_SKILL.bind(project.getId(), skill.getName(), skill.getPoint()));
+        }
+        DataVersions.bump(DataVersions.PROJECTS);
+    }
+
+    @Override
+    public BatchResult insertProjects(List<Project> projects) {
+        List<List<Object>> projectRows = new ArrayList<>(projects.size());
+        List<List<Object>> skillRows = new ArrayList<>();
+        for (Project project: projects) {
+            projectRows.add(Arrays.asList(project.getId(), project.getTitle(), project.getDescription(), project.getImageUrl(), project.getBudget(), project.getDeadline(), project.getCreationDate()));
+            for (Skill skill: project.getSkills())
+                skillRows.add(Arrays.asList(project.getId(), skill.getName(), skill.getPoint()));
+        }
+        BatchResult result = execBatchInsert("project.insertBatch", "insert ignore into Project (id,title,description,imageUrl,budget,deadline,creationDate)", projectRows, "Project");
+        execBatchInsert("project.insertSkillBatch", "insert ignore into ProjectSkill(projectId,skillName,point)", skillRows, "ProjectSkill");
+        if (result.getInserted() > 0)
+            DataVersions.bump(DataVersions.PROJECTS);
+        return result;
+    }
+
+    /**
+     * Loads projects in the order of {@code ids}.
+     */
+    @Override
+    public List<Project> getProjectsByIds(List<String> ids) {
+        Map<String, Project> projects = new HashMap<>(ids.size() * 2);
+        for (Project project: findAllIn("project.byIds", "select * from Project p join ProjectSkill ps on ps.projectId = p.id where p.id in", ids, "Project", "ProjectSkill"))
+            projects.put(project.getId(), project);
+        List<Project> result = new ArrayList<>(ids.size());
+        for (String id: ids) {
+            Project project = projects.get(id);
+            if (project != null)
+                result.add(project);
         }
+        return result;
     }
 
+    /**
+     * Up to {@code limit} decided projects whose deadline is before {@code deadlineBefore}, oldest first.
+     */
     @Override
-    public Project getProjectById(String id, User user) {
-        return findOne(generateQuery(user.getId(), null, null, null, id));
+    public List<String> getArchivableProjectIds(long deadlineBefore, int limit) {
+        return findKeys(GET_ARCHIVABLE_PROJECT_IDS.bind(deadlineBefore, limit));
     }
 
+    /**
+     * Moves the projects and their skills to the archive tables. Should run in the same transaction
+     * as archiving their auctions.
+     */
     @Override
-    public List<Project> searchProjects(String filter, User user) {
-        return findAll(generateQuery(user.getId(), filter, null, null, null));
+    public void archiveProjects(List<String> ids) {
+        execUpdateIn("project.archive", "insert ignore into ProjectArchive (id,title,description,imageUrl,budget,deadline,creationDate,archivedAt) " +
+            "select id,title,description,imageUrl,budget,deadline,creationDate," + NOW_MILLIS + " from Project where id in", ids, "ProjectArchive");
+        execUpdateIn("project.archiveSkills", "insert ignore into ProjectSkillArchive select * from ProjectSkill where projectId in", ids, "ProjectSkillArchive");
+        execUpdateIn("project.deleteSkills", "delete from ProjectSkill where projectId in", ids, "ProjectSkill");
+        execUpdateIn("project.delete", "delete from Project where id in", ids, "Project");
     }
 
     @Override
-    public List<Project> searchProjectsPaginated(String filter, Integer pageNumber, Integer pageSize, User user) {
-        return findAll(generateQuery(user.getId(), filter, pageNumber, pageSize, null));
+    public List<String> getArchivedProjectIds(List<String> ids) {
+        return findKeysIn("project.archivedByIds", "select id from ProjectArchive where id in", ids, "ProjectArchive");
     }
 
     @Override
-    public List<Project> getProjectsPaginated(User user, Integer pageNumber, Integer pageSize) {
-        return findAll(generateQuery(user.getId(), null, pageNumber, pageSize, null));
+    public long getLatestArchivedAt() {
+        return Long.parseLong(findKeys(GET_LATEST_ARCHIVED_AT.bind()).get(0));
+    }
+
+    @Override
+    public List<String> getProjectIdsArchivedAfter(long archivedAt) {
+        return findKeys(GET_PROJECT_IDS_ARCHIVED_AFTER.bind(archivedAt));
+    }
+
+    @Override
+    public List<Project> getArchivedProjectsWonBy(Integer userId) {
+        return findAll(GET_ARCHIVED_PROJECTS_WON_BY.bind(userId));
     }
 
     @Override
@@ -100,20 +147,30 @@ public class ProjectRepositoryImpl extends JDBCRepository<Project> implements Pr
     }
 
     @Override
-    Project toDomainModel(ResultSet resultSet) throws SQLException {
-        List<Skill> skills = Collections.singletonList(
-            new Skill(resultSet.getString("skillName"), resultSet.getInt("point"))
-        );
-        return new Project(
-            resultSet.getString("id"),
-            resultSet.getString("title"),
-            resultSet.getString("description"),
-            resultSet.getString("imageUrl"),
-            resultSet.getInt("budget"),
-            resultSet.getLong("deadline"),
-            resultSet.getLong("creationDate"),
-            skills
-        );
+    RowMapper<Project> compileRowMapper(ResultColumns columns) throws SQLException {
+        int id = columns.indexOf("id");
+        int title = columns.indexOf("title");
+        int description = columns.indexOf("description");
+        int imageUrl = columns.indexOf("imageUrl");
+        int budget = columns.indexOf("budget");
+        int deadline = columns.indexOf("deadline");
+        int creationDate = columns.indexOf("creationDate");
+        int skillName = columns.indexOf("skillName");
+        int point = columns.indexOf("point");
+        return resultSet -> {
+            List<Skill> skills = new ArrayList<>(1);
+            skills.add(new Skill(resultSet.getString(skillName), resultSet.getInt(point)));
+            return new Project(
+                resultSet.getString(id),
+                resultSet.getString(title),
+                resultSet.getString(description),
+                resultSet.getString(imageUrl),
+                resultSet.getInt(budget),
+                resultSet.getLong(deadline),
+                resultSet.getLong(creationDate),
+                skills
+            );
+        };
     }
 
     @Override
@@ -132,6 +189,23 @@ public class ProjectRepositoryImpl extends JDBCRepository<Project> implements Pr
         return result;
     }
 
+    @Override
+    Project copy(Project project) {
+        LinkedList<Skill> skills = new LinkedList<>();
+        for (Skill skill: project.getSkills())
+            skills.add(new Skill(skill.getName(), skill.getPoint()));
+        return new Project(project.getId(), project.getTitle(), project.getDescription(), project.getImageUrl(),
+            project.getBudget(), project.getDeadline(), project.getCreationDate(), skills);
+    }
+
+    @Override
+    boolean mergeRow(Project parent, Project row) {
+        if (!parent.getId().equals(row.getId()))
+            return false;
+        parent.getSkills().addAll(row.getSkills());
+        return true;
+    }
+
     public static String getCreateProjectSkillScript(){
         return  "create table if not exists ProjectSkill\n" +
                 "(\n" +
@@ -150,6 +224,44 @@ public class ProjectRepositoryImpl extends JDBCRepository<Project> implements Pr
                 "\n";
     }
 
+    public static String getCreateArchiveScript() {
+        return "create table if not exists ProjectArchive\n" +
+                "(\n" +
+                "\tid varchar(36) not null,\n" +
+                "\ttitle varchar(512) null,\n" +
+                "\tdescription varchar(512) null,\n" +
+                "\timageUrl varchar(512) null,\n" +
+                "\tbudget BIGINT null,\n" +
+                "\tdeadline BIGINT null,\n" +
+                "\tcreationDate BIGINT null,\n" +
+                "\tarchivedAt BIGINT not null,\n" +
+                "\tconstraint ProjectArchive_pk\n" +
+                "\t\tprimary key (id),\n" +
+                "\tindex ProjectArchive_archivedAt_index (archivedAt)\n" +
+                ");\n" +
+                "\n";
+    }
+
+    public static String getCreateProjectSkillArchiveScript() {
+        return "create table if not exists ProjectSkillArchive\n" +
+                "(\n" +
+                "\tprojectId varchar(36) not null,\n" +
+                "\tskillName varchar(512) not null,\n" +
+                "\tpoint integer null,\n" +
+                "\tconstraint ProjectSkillArchive_pk\n" +
+                "\t\tprimary key (projectId, skillName)\n" +
+                ");\n" +
+                "\n";
+    }
+
+    public static String getCreateCreationDateIndexScript() {
+        return "create index Project_creationDate_id_index on Project (creationDate, id);\n";
+    }
+
+    public static String getCreateDeadlineIndexScript() {
+        return "create index Project_deadline_id_index on Project (deadline, id);\n";
+    }
+
     public static String getCreateScript() {
         return "create table if not exists Project\n" +
                 "(\n" +
@@ -1,34 +1,53 @@
 package ir.ac.ut.joboonja.repositories.impl;
 
-import ir.ac.ut.joboonja.database.PreparedQuery;
+import ir.ac.ut.joboonja.database.BatchResult;
+import ir.ac.ut.joboonja.database.DataVersions;
+import ir.ac.ut.joboonja.database.NamedQuery;
+import ir.ac.ut.joboonja.database.QueryRegistry;
+import ir.ac.ut.joboonja.database.ResultColumns;
+import ir.ac.ut.joboonja.database.RowMapper;
 import ir.ac.ut.joboonja.entities.Skill;
 import ir.ac.ut.joboonja.repositories.SkillRepository;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 public class SkillRepositoryImpl extends JDBCRepository<Skill> implements SkillRepository {
+
+    private static final NamedQuery SKILL_EXISTS = QueryRegistry.register("skill.exists",
+        "select exists (select * from Skill s where s.name = ?) as result", "Skill");
+    private static final NamedQuery INSERT_SKILL = QueryRegistry.register("skill.insert",
+        "INSERT IGNORE INTO Skill values(?)", "Skill");
+    private static final NamedQuery GET_ALL_SKILLS = QueryRegistry.registerCached("skill.all",
+        "SELECT * FROM Skill", "Skill");
+
     @Override
     public boolean skillExists(Skill skill) {
-        String query = String.format("select exists " +
-            "(select * from %s s where s.name = ?) as result", getTableName());
-        List<Object> params = Collections.singletonList(skill.getName());
-        return exists(new PreparedQuery(query, params));
+        return exists(SKILL_EXISTS.bind(skill.getName()));
     }
 
     @Override
     public void insertSkill(Skill skill) {
-        String sql = "INSERT IGNORE INTO Skill values(?)";
-        List<Object> params = Collections.singletonList(skill.getName());
-        execUpdate(new PreparedQuery(sql, params));
+        execUpdate(INSERT_SKILL.bind(skill.getName()));
+        DataVersions.bump(DataVersions.SKILLS);
+    }
+
+    @Override
+    public BatchResult insertSkills(List<Skill> skills) {
+        List<List<Object>> rows = new ArrayList<>(skills.size());
+        for (Skill skill: skills)
+            rows.add(Collections.singletonList(skill.getName()));
+        BatchResult result = execBatchInsert("skill.insertBatch", "INSERT IGNORE INTO Skill (name)", rows, "Skill");
+        if (result.getInserted() > 0)
+            DataVersions.bump(DataVersions.SKILLS);
+        return result;
     }
 
     @Override
     public List<Skill> getAllSkills() {
-        return findAll(new PreparedQuery("SELECT * FROM " + getTableName(), Collections.emptyList()));
+        return findAll(GET_ALL_SKILLS.bind());
     }
 
     @Override
@@ -37,9 +56,15 @@ public class SkillRepositoryImpl extends JDBCRepository<Skill> implements SkillR
     }
 
     @Override
-    Skill toDomainModel(ResultSet resultSet) throws SQLException {
-        return new Skill(
-            resultSet.getString("name"),
+    Skill copy(Skill skill) {
+        return new Skill(skill.getName(), skill.getPoint());
+    }
+
+    @Override
+    RowMapper<Skill> compileRowMapper(ResultColumns columns) throws SQLException {
+        int name = columns.indexOf("name");
+        return resultSet -> new Skill(
+            resultSet.getString(name),
             null
         );
     }
@@ -1,80 +1,101 @@
 package ir.ac.ut.joboonja.repositories.impl;
 
-import ir.ac.ut.joboonja.database.PreparedQuery;
+import ir.ac.ut.joboonja.database.DataVersions;
+import ir.ac.ut.joboonja.database.NamedQuery;
+import ir.ac.ut.joboonja.database.QueryRegistry;
+import ir.ac.ut.joboonja.database.ResultColumns;
+import ir.ac.ut.joboonja.database.RowMapper;
 import ir.ac.ut.joboonja.entities.Skill;
 import ir.ac.ut.joboonja.entities.User;
 import ir.ac.ut.joboonja.repositories.UserRepository;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static java.util.stream.Collectors.groupingBy;
 
 public class UserRepositoryImpl extends JDBCRepository<User> implements UserRepository {
+
+    private static final NamedQuery INSERT_USER = QueryRegistry.register("user.insert",
+        "insert into User (username,firstname,lastname,password,jobTitle,bio,imageUrl) values ( ?,?,?,?,?,?,? )", "User");
+    private static final NamedQuery ADD_USER_SKILL = QueryRegistry.register("user.addSkill",
+        "INSERT INTO UserSkill (userId, skillName, points) VALUES (?, ?, 0);", "UserSkill");
+    private static final NamedQuery DELETE_USER_SKILL = QueryRegistry.register("user.deleteSkill",
+        "DELETE FROM UserSkill WHERE userId = ? AND skillName = ?;", "UserSkill");
+    private static final NamedQuery GET_USER_BY_USERNAME = QueryRegistry.registerCached("user.byUsername",
+        "SELECT * FROM User u " +
+        "LEFT JOIN UserSkill us on u.id = us.userId " +
+        "WHERE u.username = ?;", "User", "UserSkill");
+    private static final NamedQuery GET_USER_BY_ID = QueryRegistry.registerCached("user.byId",
+        "SELECT * FROM User u " +
+        "LEFT JOIN UserSkill us on u.id = us.userId " +
+        "WHERE u.id = ?;", "User", "UserSkill");
+    private static final NamedQuery UPDATE_USER_SKILL_POINT = QueryRegistry.register("user.updateSkillPoint",
+        "UPDATE UserSkill SET points = points + ? WHERE userId = ? AND  skillName = ?;", "UserSkill");
+    private static final NamedQuery GET_ALL_USERS = QueryRegistry.register("user.all",
+        "SELECT * FROM User u " +
+        "LEFT JOIN UserSkill us on u.id = us.userId " +
+        "ORDER BY u.id;", "User", "UserSkill");
+    private static final NamedQuery SEARCH_USERS = QueryRegistry.register("user.search",
+        "SELECT * FROM User u " +
+        "LEFT JOIN UserSkill us ON u.id = us.userId " +
+        "WHERE ( u.firstname LIKE ? or u.lastname LIKE ? ) and u.id <> ?;", "User", "UserSkill");
+
     @Override
     public void insertUser(User user) {
-        String sql = String.format("insert into %s (username,firstname,lastname,password,jobTitle,bio,imageUrl) values ( ?,?,?,?,?,?,? )", getTableName());
-        List<Object> params = Arrays.asList(user.getUsername(), user.getFirstname(), user.getLastname(), user.getPassword(), user.getJobTitle(), user.getBio(), user.getImageUrl());
-        execUpdate(new PreparedQuery(sql, params));
+        execUpdate(INSERT_USER.bind(user.getUsername(), user.getFirstname(), user.getLastname(), user.getPassword(), user.getJobTitle(), user.getBio(), user.getImageUrl()));
+        DataVersions.bump(DataVersions.USERS);
     }
 
     @Override
     public void addUserSkill(Integer userId, String skillName) {
-        String sql = "INSERT INTO UserSkill (userId, skillName, points) VALUES (?, ?, 0);";
-        List<Object> params = Arrays.asList(userId, skillName);
-        execUpdate(new PreparedQuery(sql, params));
+        execUpdate(ADD_USER_SKILL.bind(userId, skillName));
+        DataVersions.bumpUser(userId);
     }
 
     @Override
     public void deleteUserSkill(Integer userId, String skillName) {
-        String sql = "DELETE FROM UserSkill WHERE userId = ? AND skillName = ?;";
-        List<Object> params = Arrays.asList(userId, skillName);
-        execUpdate(new PreparedQuery(sql, params));
+        execUpdate(DELETE_USER_SKILL.bind(userId, skillName));
+        DataVersions.bumpUser(userId);
     }
 
     @Override
     public User getUser(String username) {
-        String query = String.format("SELECT * FROM %s u " +
-                "LEFT JOIN UserSkill us on u.id = us.userId " +
-                "WHERE u.username = ?;",
-            getTableName());
-        List<Object> params = Collections.singletonList(username);
-        return findOne(new PreparedQuery(query, params));
+        return findOne(GET_USER_BY_USERNAME.bind(username));
     }
 
     @Override
     public User getUserById(Integer id) {
-        String query = String.format("SELECT * FROM %s u " +
-                "LEFT JOIN UserSkill us on u.id = us.userId " +
-                "WHERE u.id = ?;",
-            getTableName());
-        List<Object> params = Collections.singletonList(id);
-        return findOne(new PreparedQuery(query, params));
+        return findOne(GET_USER_BY_ID.bind(id));
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        return findAllIn("user.byIds", "SELECT * FROM User u LEFT JOIN UserSkill us on u.id = us.userId WHERE u.id IN", ids, "User", "UserSkill");
     }
 
     @Override
     public void updateUserSkillPoint(Integer userId, String skillName, Integer points) {
-        String sql = "UPDATE UserSkill SET points = points + ? WHERE userId = ? AND  skillName = ?;";
-        List<Object> params = Arrays.asList(points, userId, skillName);
-        execUpdate(new PreparedQuery(sql, params));
+        execUpdate(UPDATE_USER_SKILL_POINT.bind(points, userId, skillName));
+        DataVersions.bumpUser(userId);
     }
 
     @Override
     public List<User> getAllUsers() {
-        String query = String.format("SELECT * FROM %s u " +
-                "LEFT JOIN UserSkill us on u.id = us.userId;",
-            getTableName());
-        return findAll(new PreparedQuery(query, Collections.emptyList()));
+        List<User> users = new ArrayList<>();
+        streamAllUsers(users::add);
+        return users;
+    }
+
+    @Override
+    public void streamAllUsers(Consumer<User> consumer) {
+        stream(GET_ALL_USERS.bind(), consumer);
     }
 
     @Override
     public List<User> searchUsers(String filter, User user) {
-        String query = "SELECT * FROM User u " +
-                "LEFT JOIN UserSkill us ON u.id = us.userId " +
-                "WHERE ( u.firstname LIKE ? or u.lastname LIKE ? ) and u.id <> ?;";
-        List<Object> params = Arrays.asList("%"+filter+"%", "%"+filter+"%", user.getId());
-        return findAll(new PreparedQuery(query, params));
+        return findAll(SEARCH_USERS.bind("%"+filter+"%", "%"+filter+"%", user.getId()));
     }
 
     @Override
@@ -83,20 +104,34 @@ public class UserRepositoryImpl extends JDBCRepository<User> implements UserRepo
     }
 
     @Override
-    User toDomainModel(ResultSet resultSet) throws SQLException {
-        LinkedList<Skill> skills = new LinkedList<>();
-        skills.add(new Skill(resultSet.getString("skillName"), resultSet.getInt("points")));
-        return new User(
-            resultSet.getInt("id"),
-            resultSet.getString("username"),
-            resultSet.getString("firstname"),
-            resultSet.getString("lastname"),
-            resultSet.getString("jobTitle"),
-            resultSet.getString("bio"),
-            resultSet.getString("password"),
-            resultSet.getString("imageUrl"),
-            skills
-        );
+    RowMapper<User> compileRowMapper(ResultColumns columns) throws SQLException {
+        int id = columns.indexOf("id");
+        int username = columns.indexOf("username");
+        int firstname = columns.indexOf("firstname");
+        int lastname = columns.indexOf("lastname");
+        int jobTitle = columns.indexOf("jobTitle");
+        int bio = columns.indexOf("bio");
+        int password = columns.indexOf("password");
+        int imageUrl = columns.indexOf("imageUrl");
+        int skillName = columns.indexOf("skillName");
+        int points = columns.indexOf("points");
+        return resultSet -> {
+            LinkedList<Skill> skills = new LinkedList<>();
+            String name = resultSet.getString(skillName);
+            if (name != null)
+                skills.add(new Skill(name, resultSet.getInt(points)));
+            return new User(
+                resultSet.getInt(id),
+                resultSet.getString(username),
+                resultSet.getString(firstname),
+                resultSet.getString(lastname),
+                resultSet.getString(jobTitle),
+                resultSet.getString(bio),
+                resultSet.getString(password),
+                resultSet.getString(imageUrl),
+                skills
+            );
+        };
     }
 
     @Override
@@ -105,11 +140,8 @@ public class UserRepositoryImpl extends JDBCRepository<User> implements UserRepo
         LinkedList<User> result = new LinkedList<>();
         for (Integer userId: users.keySet()) {
             LinkedList<Skill> userSkills = new LinkedList<>();
-            for (User u: users.get(userId)) {
-                Skill skill = u.getSkills().get(0);
-                if (skill.getName() != null)
-                    userSkills.add(skill);
-            }
+            for (User u: users.get(userId))
+                userSkills.addAll(u.getSkills());
 
             User user = users.get(userId).get(0);
             user.setSkills(userSkills);
@@ -118,6 +150,23 @@ public class UserRepositoryImpl extends JDBCRepository<User> implements UserRepo
         return result;
     }
 
+    @Override
+    User copy(User user) {
+        LinkedList<Skill> skills = new LinkedList<>();
+        for (Skill skill: user.getSkills())
+            skills.add(new Skill(skill.getName(), skill.getPoint()));
+        return new User(user.getId(), user.getUsername(), user.getFirstname(), user.getLastname(), user.getJobTitle(),
+            user.getBio(), user.getPassword(), user.getImageUrl(), skills);
+    }
+
+    @Override
+    boolean mergeRow(User parent, User row) {
+        if (!parent.getId().equals(row.getId()))
+            return false;
+        parent.getSkills().addAll(row.getSkills());
+        return true;
+    }
+
     public static String getCreateUserSkillScript(){
         return "create table if not exists UserSkill\n " +
                 "(\n" +
@@ -1,18 +1,43 @@
 package ir.ac.ut.joboonja.repositories.impl.memory;
 
+import ir.ac.ut.joboonja.database.BatchResult;
 import ir.ac.ut.joboonja.entities.Bid;
 import ir.ac.ut.joboonja.entities.Project;
 import ir.ac.ut.joboonja.repositories.AuctionRepository;
 import ir.ac.ut.joboonja.entities.Auction;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class AuctionRepositoryInMemoryImpl implements AuctionRepository {
     @Override
-    public void insertBid(Bid bid) {
+    public boolean insertBid(Bid bid) {
+        if (getBid(bid.getProjectId(), bid.getUserId()) != null)
+            return false;
         Auction auction = getAuction(bid.getProjectId());
         if(auction == null)
             auction = new Auction(bid.getProjectId());
         auction.addOffer(bid);
         MemoryDataBase.getInstance().insertAuction(auction);
+        return true;
+    }
+
+    @Override
+    public List<Boolean> insertBids(List<Bid> bids) {
+        List<Boolean> inserted = new ArrayList<>(bids.size());
+        for (Bid bid: bids)
+            inserted.add(insertBid(bid));
+        return inserted;
+    }
+
+    @Override
+    public Bid getBid(String projectId, Integer userId) {
+        Auction auction = getAuction(projectId);
+        if (auction != null)
+            for (Bid bid: auction.getOffers())
+                if (bid.getUserId().equals(userId))
+                    return bid;
+        return null;
     }
 
     @Override
@@ -20,13 +45,39 @@ public class AuctionRepositoryInMemoryImpl implements AuctionRepository {
         return MemoryDataBase.getInstance().getAuction(id);
     }
 
+    @Override
+    public List<Auction> getAuctions(List<String> projectIds) {
+        List<Auction> auctions = new ArrayList<>();
+        for (String projectId: projectIds) {
+            Auction auction = getAuction(projectId);
+            if (auction != null)
+                auctions.add(auction);
+        }
+        return auctions;
+    }
+
     @Override
     public void insertAuction(Auction auction) {
 
     }
 
+    @Override
+    public BatchResult insertAuctions(List<Auction> auctions) {
+        return new BatchResult(0, auctions.size());
+    }
+
+    @Override
+    public void archiveAuctions(List<String> projectIds) {
+
+    }
+
     @Override
     public Auction getAuctionWinner(Project project) {
         return null;
     }
+
+    @Override
+    public List<Auction> getAuctionWinners(List<String> projectIds) {
+        return new ArrayList<>();
+    }
 }
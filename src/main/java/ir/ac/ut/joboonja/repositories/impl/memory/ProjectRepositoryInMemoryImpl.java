@@ -1,21 +1,32 @@
 package ir.ac.ut.joboonja.repositories.impl.memory;
 
-import ir.ac.ut.joboonja.entities.User;
+import ir.ac.ut.joboonja.database.BatchResult;
 import ir.ac.ut.joboonja.repositories.ProjectRepository;
 import ir.ac.ut.joboonja.entities.Project;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 
 public class ProjectRepositoryInMemoryImpl implements ProjectRepository {
     @Override
-    public List<Project> getAllProjects(User user) {
-        return MemoryDataBase.getInstance().getAllProjects();
+    public void streamAllProjects(Consumer<Project> consumer) {
+        MemoryDataBase.getInstance().getAllProjects().forEach(consumer);
     }
 
     @Override
-    public List<Project> getAllProjects() {
-        return null;
+    public void streamProjectsCreatedAfter(long creationDate, Consumer<Project> consumer) {
+        for (Project project: MemoryDataBase.getInstance().getAllProjects())
+            if (project.getCreationDate() != null && project.getCreationDate() > creationDate)
+                consumer.accept(project);
+    }
+
+    @Override
+    public void streamUndecidedProjects(Consumer<Project> consumer) {
+        for (Project project: MemoryDataBase.getInstance().getAllProjects())
+            if (MemoryDataBase.getInstance().getAuction(project.getId()) == null)
+                consumer.accept(project);
     }
 
     @Override
@@ -24,23 +35,55 @@ public class ProjectRepositoryInMemoryImpl implements ProjectRepository {
     }
 
     @Override
-    public Project getProjectById(String id, User user) {
-        return MemoryDataBase.getInstance().getProjectById(id);
+    public BatchResult insertProjects(List<Project> projects) {
+        int inserted = 0;
+        for (Project project: projects) {
+            if (!MemoryDataBase.getInstance().projectExists(project)) {
+                MemoryDataBase.getInstance().insertProject(project);
+                inserted++;
+            }
+        }
+        return new BatchResult(inserted, projects.size() - inserted);
+    }
+
+    @Override
+    public List<Project> getProjectsByIds(List<String> ids) {
+        List<Project> projects = new ArrayList<>(ids.size());
+        for (String id: ids) {
+            Project project = MemoryDataBase.getInstance().getProjectById(id);
+            if (project != null)
+                projects.add(project);
+        }
+        return projects;
     }
 
     @Override
-    public List<Project> searchProjects(String filter, User user) {
-        return null;
+    public List<String> getArchivableProjectIds(long deadlineBefore, int limit) {
+        return new ArrayList<>();
     }
 
     @Override
-    public List<Project> searchProjectsPaginated(String filter, Integer pageNumber, Integer pageSize, User user) {
-        return null;
+    public void archiveProjects(List<String> ids) {
+
     }
 
     @Override
-    public List<Project> getProjectsPaginated(User user, Integer pageNumber, Integer pageSize) {
-        return null;
+    public List<String> getArchivedProjectIds(List<String> ids) {
+        return new ArrayList<>();
     }
 
+    @Override
+    public long getLatestArchivedAt() {
+        return 0;
+    }
+
+    @Override
+    public List<String> getProjectIdsArchivedAfter(long archivedAt) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Project> getArchivedProjectsWonBy(Integer userId) {
+        return new ArrayList<>();
+    }
 }
@@ -1,5 +1,6 @@
 package ir.ac.ut.joboonja.repositories.impl.memory;
 
+import ir.ac.ut.joboonja.database.BatchResult;
 import ir.ac.ut.joboonja.repositories.SkillRepository;
 import ir.ac.ut.joboonja.entities.Skill;
 
@@ -17,6 +18,18 @@ public class SkillRepositoryInMemoryImpl implements SkillRepository {
         MemoryDataBase.getInstance().insertSkill(skill);
     }
 
+    @Override
+    public BatchResult insertSkills(List<Skill> skills) {
+        int inserted = 0;
+        for (Skill skill: skills) {
+            if (!MemoryDataBase.getInstance().skillExists(skill)) {
+                MemoryDataBase.getInstance().insertSkill(skill);
+                inserted++;
+            }
+        }
+        return new BatchResult(inserted, skills.size() - inserted);
+    }
+
     @Override
     public List<Skill> getAllSkills() {
         return MemoryDataBase.getInstance().getAllSkills();
@@ -4,7 +4,9 @@ import ir.ac.ut.joboonja.repositories.UserRepository;
 import ir.ac.ut.joboonja.entities.Skill;
 import ir.ac.ut.joboonja.entities.User;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class UserRepositoryInMemoryImpl implements UserRepository {
 
@@ -23,6 +25,17 @@ public class UserRepositoryInMemoryImpl implements UserRepository {
         return MemoryDataBase.getInstance().getUser(id);
     }
 
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        List<User> users = new ArrayList<>(ids.size());
+        for (Integer id: ids) {
+            User user = MemoryDataBase.getInstance().getUser(id);
+            if (user != null)
+                users.add(user);
+        }
+        return users;
+    }
+
     @Override
     public void updateUserSkillPoint(Integer userId, String skillName, Integer points) {
         User user = MemoryDataBase.getInstance().getUser(userId);
@@ -48,6 +61,11 @@ public class UserRepositoryInMemoryImpl implements UserRepository {
         return MemoryDataBase.getInstance().getAllUser();
     }
 
+    @Override
+    public void streamAllUsers(Consumer<User> consumer) {
+        MemoryDataBase.getInstance().getAllUser().forEach(consumer);
+    }
+
     @Override
     public List<User> searchUsers(String filter, User user) {
         return null;
@@ -0,0 +1,12 @@
+package ir.ac.ut.joboonja.scoring;
+
+import ir.ac.ut.joboonja.index.SkillVector;
+
+/**
+ * Scores a bid; the highest score wins the auction. {@code bidderPoints} is the bidder's dense skill
+ * vector from {@link ir.ac.ut.joboonja.index.SkillDictionary#toVector}, -1 for skills the bidder lacks.
+ * Implementations are called concurrently and on hot paths, so they should be stateless and not allocate.
+ */
+public interface AuctionScorer {
+    double score(SkillVector requirements, int[] bidderPoints, int budget, int bidAmount);
+}
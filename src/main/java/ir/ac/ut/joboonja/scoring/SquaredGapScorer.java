@@ -0,0 +1,22 @@
+package ir.ac.ut.joboonja.scoring;
+
+import ir.ac.ut.joboonja.index.SkillVector;
+
+/**
+ * The default formula: {@code sum(10000 * (userPoint - requiredPoint)^2) + budget - bidAmount}, summed over
+ * the required skills the bidder has.
+ */
+public class SquaredGapScorer implements AuctionScorer {
+    @Override
+    public double score(SkillVector requirements, int[] bidderPoints, int budget, int bidAmount) {
+        double sum = 0;
+        for (int i = 0; i < requirements.size(); i++) {
+            int skill = requirements.skillAt(i);
+            if (skill >= bidderPoints.length || bidderPoints[skill] < 0)
+                continue;
+            double gap = bidderPoints[skill] - requirements.pointAt(i);
+            sum += 10000 * gap * gap;
+        }
+        return sum + budget - bidAmount;
+    }
+}
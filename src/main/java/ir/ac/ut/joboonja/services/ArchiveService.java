@@ -0,0 +1,56 @@
+package ir.ac.ut.joboonja.services;
+
+import ir.ac.ut.joboonja.database.UnitOfWork;
+import ir.ac.ut.joboonja.repositories.AuctionRepository;
+import ir.ac.ut.joboonja.repositories.ProjectRepository;
+import ir.ac.ut.joboonja.repositories.impl.AuctionRepositoryImpl;
+import ir.ac.ut.joboonja.repositories.impl.ProjectRepositoryImpl;
+import ir.ac.ut.joboonja.utilities.Config;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+
+/**
+ * Moves decided projects whose deadline passed more than {@code joboonja.archive.retentionMillis} ago,
+ * with their skills, bids and results, from the hot tables to the archive tables, in batches of
+ * {@code joboonja.archive.batchSize} projects, one transaction each. Only the node holding the archive
+ * lease runs it; the other nodes drop archived projects from their indexes when they next refresh.
+ */
+@Configuration
+@EnableScheduling
+public class ArchiveService {
+
+    private static final long RETENTION_MILLIS = Config.getLong("joboonja.archive.retentionMillis", 30L * 24 * 60 * 60 * 1000);
+    private static final int BATCH_SIZE = Config.getInt("joboonja.archive.batchSize", 500);
+    private static final String ARCHIVE_LEASE = "archive";
+
+    private static AuctionRepository auctionRepository = new AuctionRepositoryImpl();
+    private static ProjectRepository projectRepository = new ProjectRepositoryImpl();
+
+    @Scheduled(fixedDelay = 1000*60*60)
+    public static void archive() {
+        if (!ClusterNode.local().acquireLease(ARCHIVE_LEASE))
+            return;
+        UnitOfWork.execute(() -> {
+            System.out.println("archiving projects ...");
+            long deadlineBefore = System.currentTimeMillis() - RETENTION_MILLIS;
+            int archived = 0;
+            List<String> batch;
+            do {
+                batch = projectRepository.getArchivableProjectIds(deadlineBefore, BATCH_SIZE);
+                if (batch.isEmpty())
+                    break;
+                List<String> ids = batch;
+                UnitOfWork.executeInTransaction(() -> {
+                    auctionRepository.archiveAuctions(ids);
+                    projectRepository.archiveProjects(ids);
+                });
+                ProjectService.removeArchivedProjects(ids);
+                archived += ids.size();
+            } while (batch.size() == BATCH_SIZE);
+            System.out.println("archived " + archived + " projects ...");
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package ir.ac.ut.joboonja.services;
+
+import ir.ac.ut.joboonja.utilities.Config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Closes auctions {@code joboonja.auction.closeDelayMillis} after their deadlines, by default the longest a
+ * {@link BidPipeline} caller waits, so a bid accepted just before the deadline is committed before its auction
+ * is decided. Undecided projects wait in a delay queue ordered by deadline;
+ * a single worker thread sleeps until the earliest one is due, then hands it, together with everything
+ * else already due, to the closer. A failed batch is retried after {@code joboonja.auction.retryMillis}.
+ * Auctions the closer leaves to other nodes are checked again after {@code joboonja.auction.recheckMillis},
+ * by which time a dead owner has dropped out of the live nodes.
+ */
+public class AuctionScheduler {
+    private static final long RETRY_MILLIS = Config.getLong("joboonja.auction.retryMillis", 30 * 1000);
+    private static final long RECHECK_MILLIS = Config.getLong("joboonja.auction.recheckMillis", ClusterNode.getLeaseMillis());
+    private static final long CLOSE_DELAY_MILLIS = Config.getLong("joboonja.auction.closeDelayMillis", BidPipeline.getWaitMillis());
+
+    private static final DelayQueue<DueAuction> queue = new DelayQueue<>();
+    private static final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+    private static Thread worker;
+
+    private static class DueAuction implements Delayed {
+        private final String projectId;
+        private final long dueAt;
+
+        DueAuction(String projectId, long dueAt) {
+            this.projectId = projectId;
+            this.dueAt = dueAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((DueAuction) other).dueAt);
+        }
+    }
+
+    public static void schedule(String projectId, Long deadline) {
+        if (scheduled.add(projectId))
+            queue.put(new DueAuction(projectId, deadline == null ? 0 : deadline + CLOSE_DELAY_MILLIS));
+    }
+
+    /**
+     * Whether the auction is waiting to be closed by this node, i.e. isn't known to be decided.
+     */
+    public static boolean isScheduled(String projectId) {
+        return scheduled.contains(projectId);
+    }
+
+    static void unschedule(Collection<String> projectIds) {
+        scheduled.removeAll(projectIds);
+    }
+
+    public static int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * Starts the worker. {@code closer} decides the given auctions and returns those it left undecided
+     * because another node owns them.
+     */
+    public static synchronized void start(Function<List<String>, List<String>> closer) {
+        if (worker != null)
+            return;
+        worker = new Thread(() -> run(closer), "auction-scheduler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public static synchronized void stop() {
+        if (worker == null)
+            return;
+        worker.interrupt();
+        worker = null;
+    }
+
+    private static void run(Function<List<String>, List<String>> closer) {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<DueAuction> due = new ArrayList<>();
+            try {
+                due.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(due);
+
+            List<String> projectIds = new ArrayList<>(due.size());
+            for (DueAuction auction: due)
+                projectIds.add(auction.projectId);
+            try {
+                List<String> deferred = closer.apply(projectIds);
+                scheduled.removeAll(projectIds);
+                long recheckAt = System.currentTimeMillis() + RECHECK_MILLIS;
+                for (String projectId: deferred)
+                    if (scheduled.add(projectId))
+                        queue.put(new DueAuction(projectId, recheckAt));
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                long retryAt = System.currentTimeMillis() + RETRY_MILLIS;
+                for (String projectId: projectIds)
+                    queue.put(new DueAuction(projectId, retryAt));
+            }
+        }
+    }
+
+    private AuctionScheduler() { }
+}
@@ -1,74 +1,195 @@
 package ir.ac.ut.joboonja.services;
 
+import ir.ac.ut.joboonja.database.BatchResult;
+import ir.ac.ut.joboonja.database.UnitOfWork;
 import ir.ac.ut.joboonja.entities.*;
 import ir.ac.ut.joboonja.exceptions.BadRequestException;
+import ir.ac.ut.joboonja.events.EventHub;
+import ir.ac.ut.joboonja.index.BidLeaderboard;
+import ir.ac.ut.joboonja.index.SkillDictionary;
+import ir.ac.ut.joboonja.index.SkillVector;
 import ir.ac.ut.joboonja.models.BidAmount;
+import ir.ac.ut.joboonja.models.BidRank;
+import ir.ac.ut.joboonja.models.ProjectEvent;
 import ir.ac.ut.joboonja.repositories.AuctionRepository;
 import ir.ac.ut.joboonja.repositories.ProjectRepository;
 import ir.ac.ut.joboonja.repositories.UserRepository;
 import ir.ac.ut.joboonja.repositories.impl.AuctionRepositoryImpl;
 import ir.ac.ut.joboonja.repositories.impl.ProjectRepositoryImpl;
 import ir.ac.ut.joboonja.repositories.impl.UserRepositoryImpl;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
+import ir.ac.ut.joboonja.scoring.AuctionScorer;
+import ir.ac.ut.joboonja.scoring.SquaredGapScorer;
+import ir.ac.ut.joboonja.utilities.Config;
 
-import java.util.Date;
-import java.util.List;
+import java.util.*;
 
-@Configuration
-@EnableScheduling
 public class AuctionService {
 
     private static AuctionRepository auctionRepository = new AuctionRepositoryImpl();
     private static ProjectRepository projectRepository = new ProjectRepositoryImpl();
     private static UserRepository userRepository = new UserRepositoryImpl();
+    private static final int LEADERBOARD_CHUNK_SIZE = 512;
+    private static final AuctionScorer scorer = createScorer(
+        Config.get("joboonja.auction.scorer", SquaredGapScorer.class.getName()));
 
-    @Scheduled(fixedDelay = 1000*60)
-    public static void holdAuction(){
-        System.out.println("holding auctions ...");
-        List<Project> projects = projectRepository.getAllProjects();
-
-        for(Project project:projects){
-            if(project.getDeadline() < new Date().getTime()){
-                Auction auction = auctionRepository.getAuction(project.getId());
-                User winnerUser = null;
-                if (auction == null) {
-                    auctionRepository.insertAuction(new Auction(project.getId() , 0));
-                    continue;
-                }
-                double maxPoint = 0;
-                for(Bid bidInfo: auction.getOffers()){
-                    User user = UserService.getUserById(bidInfo.getUserId());
-                    double point =  calAuctionPoint(project , user);
-                    point += project.getBudget() - bidInfo.getBidAmount();
-                    if(maxPoint < point) {
-                        maxPoint = point;
-                        winnerUser = user;
-                    }
-                }
-                System.out.println("project " + project.getId() + " winner " + winnerUser.getId());
-                auctionRepository.insertAuction(new Auction(project.getId() , winnerUser.getId()));
-            }
+    private static AuctionScorer createScorer(String className) {
+        try {
+            return (AuctionScorer) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            System.err.println("invalid auction scorer " + className + ", using the default");
+            return new SquaredGapScorer();
         }
-        System.out.println("finished holding auctions ...");
     }
 
-    private static double calAuctionPoint(Project project , User user){
-        double sum = 0;
+    public static void startScheduler() {
+        AuctionScheduler.start(AuctionService::closeAuctions);
+        UnitOfWork.execute(() -> {
+            List<Project> undecided = new ArrayList<>();
+            projectRepository.streamUndecidedProjects(project -> {
+                AuctionScheduler.schedule(project.getId(), project.getDeadline());
+                undecided.add(project);
+            });
+            for (int from = 0; from < undecided.size(); from += LEADERBOARD_CHUNK_SIZE)
+                loadLeaderboards(undecided.subList(from, Math.min(undecided.size(), from + LEADERBOARD_CHUNK_SIZE)));
+        });
+        System.out.println("scheduled " + AuctionScheduler.size() + " auctions ...");
+    }
 
-        for (Skill skill: project.getSkills()) {
-            int skillIndex = user.getSkills().indexOf(skill);
-            int userPoint = user.getSkills().get(skillIndex).getPoint();
-            sum = 10000 * Math.pow((double) (userPoint - skill.getPoint()) , 2);
+    public static void scheduleAuctions(List<Project> projects) {
+        for (Project project: projects)
+            AuctionScheduler.schedule(project.getId(), project.getDeadline());
+    }
+
+    private static void loadLeaderboards(List<Project> projects) {
+        List<String> projectIds = new ArrayList<>(projects.size());
+        for (Project project: projects)
+            projectIds.add(project.getId());
+        Map<String, List<Bid>> bids = getBids(projectIds);
+        Map<Integer, int[]> bidders = getBidderPoints(bids.values());
+        for (Project project: projects) {
+            SkillVector requirements = SkillVector.of(project.getSkills());
+            for (Bid bid: bids.getOrDefault(project.getId(), Collections.emptyList())) {
+                int[] bidderPoints = bidders.get(bid.getUserId());
+                if (bidderPoints != null)
+                    BidLeaderboard.add(project.getId(), bid.getUserId(), bid.getBidAmount(),
+                        scorer.score(requirements, bidderPoints, project.getBudget(), bid.getBidAmount()));
+            }
         }
+    }
+
+    private static Map<String, List<Bid>> getBids(List<String> projectIds) {
+        Map<String, List<Bid>> bids = new HashMap<>();
+        for (Auction auction: auctionRepository.getAuctions(projectIds))
+            bids.put(auction.getProjectId(), auction.getOffers());
+        return bids;
+    }
+
+    /**
+     * The bidders' skill vectors by user id, loaded with one query.
+     */
+    private static Map<Integer, int[]> getBidderPoints(Collection<List<Bid>> bids) {
+        Set<Integer> bidderIds = new HashSet<>();
+        for (List<Bid> offers: bids)
+            for (Bid bid: offers)
+                bidderIds.add(bid.getUserId());
+        Map<Integer, int[]> bidders = new HashMap<>();
+        for (User user: userRepository.getUsersByIds(new ArrayList<>(bidderIds)))
+            bidders.put(user.getId(), SkillDictionary.toVector(user.getSkills()));
+        return bidders;
+    }
 
-        return sum;
+    /**
+     * Adds the bids stored for the undecided auctions to their leaderboards, e.g. those placed on other nodes.
+     * Bids already on a board are left as they are.
+     */
+    static void refreshLeaderboards(List<String> projectIds) {
+        long now = System.currentTimeMillis();
+        List<Project> open = new ArrayList<>();
+        for (Project project: ProjectService.getProjectsByIds(projectIds))
+            if (project.getDeadline() > now || AuctionScheduler.isScheduled(project.getId()))
+                open.add(project);
+        if (!open.isEmpty())
+            loadLeaderboards(open);
+    }
+
+    private static List<String> closeAuctions(List<String> projectIds) {
+        return closeAuctions(ClusterNode.local(), projectIds);
+    }
+
+    /**
+     * Decides the due auctions whose partition {@code node} owns. The rest are returned to be checked again
+     * later, except those their owner has already decided, whose results are published here too.
+     *
+     * The change poll runs first, under the same lock, so the leaderboards hold the bids and bidder skills
+     * other nodes wrote before the deadline, and no poll adds to a board while its auction is being decided.
+     */
+    static List<String> closeAuctions(ClusterNode node, List<String> projectIds) {
+        return ChangeListener.pollThen(() -> {
+            List<String> owned = new ArrayList<>();
+            List<String> others = new ArrayList<>();
+            for (String projectId: projectIds)
+                (node.owns(projectId) ? owned : others).add(projectId);
+            if (!owned.isEmpty())
+                decideAuctions(owned);
+            if (others.isEmpty())
+                return others;
+
+            return UnitOfWork.execute(() -> {
+                List<Auction> decided = auctionRepository.getAuctionWinners(others);
+                List<String> decidedIds = new ArrayList<>(decided.size());
+                for (Auction auction: decided)
+                    decidedIds.add(auction.getProjectId());
+                publishResults(decided);
+                closeLeaderboards(decidedIds);
+
+                List<String> deferred = new ArrayList<>(others);
+                deferred.removeAll(decidedIds);
+                return deferred;
+            });
+        });
+    }
+
+    /**
+     * Decides a batch of auctions, each won by the leader of its leaderboard, and writes them with one batched
+     * insert. The boards are kept scored with the bidders' current skills, so this is the bidder the rank
+     * endpoint showed first.
+     */
+    private static void decideAuctions(List<String> projectIds) {
+        UnitOfWork.execute(() -> {
+            System.out.println("holding " + projectIds.size() + " auctions ...");
+            List<Auction> results = new ArrayList<>(projectIds.size());
+            for (String projectId: projectIds)
+                results.add(new Auction(projectId, BidLeaderboard.leader(projectId)));
+
+            BatchResult result = UnitOfWork.executeInTransaction(() -> auctionRepository.insertAuctions(results));
+            // another node may have decided some of them first, and INSERT IGNORE kept its winners
+            publishResults(UnitOfWork.readFromPrimary(() -> auctionRepository.getAuctionWinners(projectIds)));
+            closeLeaderboards(projectIds);
+            System.out.println("finished holding auctions: " + result + " ...");
+        });
+    }
+
+    private static void closeLeaderboards(List<String> projectIds) {
+        AuctionScheduler.unschedule(projectIds);
+        for (String projectId: projectIds)
+            BidLeaderboard.remove(projectId);
+    }
+
+    /**
+     * Tells the watchers and bidders of each auction who won it.
+     */
+    private static void publishResults(List<Auction> results) {
+        for (Auction auction: results) {
+            List<String> topics = new ArrayList<>();
+            topics.add(EventHub.projectTopic(auction.getProjectId()));
+            for (Integer bidderId: BidLeaderboard.bidders(auction.getProjectId()))
+                topics.add(EventHub.userTopic(bidderId));
+            Integer winnerId = auction.getWinnerId() == null || auction.getWinnerId() == 0 ? null : auction.getWinnerId();
+            EventHub.publish(EventHub.AUCTION_DECIDED, ProjectEvent.decided(auction.getProjectId(), winnerId), topics);
+        }
     }
 
     public static Bid bidProject(Project project, Integer bidAmount, User user) {
-        if (hasUserBid(project, user).getBidAmount() != -1)
-            throw new BadRequestException("User has already bidded!");
         if (bidAmount > project.getBudget())
             throw new BadRequestException("Bid amount is higher than project budget!");
         if (bidAmount < 0)
@@ -77,29 +198,64 @@ public class AuctionService {
             throw new BadRequestException("Project deadline has been passed!");
 
         Bid bid = new Bid(user.getId(), project.getId(), bidAmount);
-        auctionRepository.insertBid(bid);
+        if (!BidPipeline.insertBid(bid, project.getDeadline()))
+            throw new BadRequestException("User has already bidded!");
+        Integer previousLeader = BidLeaderboard.leader(project.getId());
+        BidLeaderboard.add(project.getId(), user.getId(), bidAmount, scorer.score(
+            SkillVector.of(project.getSkills()), SkillDictionary.toVector(user.getSkills()), project.getBudget(), bidAmount));
+        notifyOutbid(project.getId(), previousLeader);
         return bid;
     }
 
-    public static BidAmount hasUserBid(Project project, User user){
-        Auction auction = auctionRepository.getAuction(project.getId());
-        BidAmount bidAmount = new BidAmount();
-        if(auction == null) {
-            bidAmount.setBidAmount(-1);
-            return bidAmount;
-        }
-        else {
-            for(Bid bid:auction.getOffers()) {
-                if(bid.getUserId().equals(user.getId())) {
-                    bidAmount.setBidAmount(bid.getBidAmount());
-                    return bidAmount;
-                }
+    private static void notifyOutbid(String projectId, Integer previousLeader) {
+        if (previousLeader != null && !previousLeader.equals(BidLeaderboard.leader(projectId)))
+            EventHub.publish(EventHub.OUTBID, ProjectEvent.outbid(projectId, BidLeaderboard.rank(projectId, previousLeader)),
+                EventHub.userTopic(previousLeader));
+    }
+
+    /**
+     * Rescores the user's bids on the open auctions with the user's skills as stored now.
+     */
+    public static void rescoreBidder(Integer userId) {
+        if (!BidLeaderboard.bidsOf(userId).isEmpty())
+            rescoreBidders(UnitOfWork.readFromPrimary(() -> userRepository.getUsersByIds(Collections.singletonList(userId))));
+    }
+
+    /**
+     * Rescores the users' bids on the open auctions with the given skills, telling a leader who loses the
+     * lead, as a new bid would.
+     */
+    public static void rescoreBidders(List<User> users) {
+        for (User user: users) {
+            Map<String, Integer> bids = BidLeaderboard.bidsOf(user.getId());
+            if (bids.isEmpty())
+                continue;
+            int[] bidderPoints = SkillDictionary.toVector(user.getSkills());
+            for (Project project: ProjectService.getProjectsByIds(new ArrayList<>(bids.keySet()))) {
+                Integer previousLeader = BidLeaderboard.leader(project.getId());
+                BidLeaderboard.rescore(project.getId(), user.getId(), scorer.score(
+                    SkillVector.of(project.getSkills()), bidderPoints, project.getBudget(), bids.get(project.getId())));
+                notifyOutbid(project.getId(), previousLeader);
             }
         }
-        bidAmount.setBidAmount(-1);
+    }
+
+    public static BidAmount hasUserBid(Project project, User user){
+        Bid bid = auctionRepository.getBid(project.getId(), user.getId());
+        BidAmount bidAmount = new BidAmount();
+        bidAmount.setBidAmount(bid == null ? -1 : bid.getBidAmount());
         return bidAmount;
     }
 
+    /**
+     * A bid this node hasn't seen (placed on another node since the last change poll) is loaded first.
+     */
+    public static BidRank getBidRank(Project project, User user) {
+        if (BidLeaderboard.rank(project.getId(), user.getId()) == -1)
+            refreshLeaderboards(Collections.singletonList(project.getId()));
+        return new BidRank(BidLeaderboard.rank(project.getId(), user.getId()), BidLeaderboard.size(project.getId()));
+    }
+
     public static User getAuctionWinner(Project project){
         Auction auction = auctionRepository.getAuctionWinner(project);
         if(auction == null || auction.getWinnerId() == 0){
@@ -0,0 +1,211 @@
+package ir.ac.ut.joboonja.services;
+
+import ir.ac.ut.joboonja.database.UnitOfWork;
+import ir.ac.ut.joboonja.entities.Bid;
+import ir.ac.ut.joboonja.exceptions.BadRequestException;
+import ir.ac.ut.joboonja.repositories.AuctionRepository;
+import ir.ac.ut.joboonja.repositories.impl.AuctionRepositoryImpl;
+import ir.ac.ut.joboonja.utilities.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Group commit for bids. Callers queue their bid and wait; a flusher thread collects up to
+ * {@code joboonja.bids.batchSize} bids, waiting at most {@code joboonja.bids.flushMillis} for more after the
+ * first, and writes them in one transaction as one multi-row insert. A caller returns only after its bid
+ * is committed.
+ *
+ * A bid whose project deadline has passed by the time it is flushed fails rather than being written. Together
+ * with {@link AuctionScheduler} closing auctions {@code joboonja.auction.closeDelayMillis} (by default the wait
+ * bound below) after their deadlines, a caller told its bid was placed is counted by the auction.
+ *
+ * If the batch fails (a deadlock, say), it is rolled back and every
+ * bid is retried on its own, so each caller gets its own result or error. When the queue is full or the
+ * pipeline isn't running, bids are inserted directly. A queued bid is recorded as a write of the caller's
+ * unit of work, so the caller's next reads see it.
+ *
+ * Queueing and {@link #stop} exclude each other, so no bid is queued after the flusher's last drain. A caller
+ * waits at most {@code joboonja.bids.waitMillis}; the bid may still be committed after that.
+ */
+public class BidPipeline {
+    private static final int QUEUE_SIZE = Config.getInt("joboonja.bids.queueSize", 10000);
+    private static final int BATCH_SIZE = Config.getInt("joboonja.bids.batchSize", 200);
+    private static final long FLUSH_MILLIS = Config.getLong("joboonja.bids.flushMillis", 5);
+    private static final long WAIT_MILLIS = Config.getLong("joboonja.bids.waitMillis", 10000);
+    private static final long STOP_MILLIS = 10000;
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private static AuctionRepository auctionRepository = new AuctionRepositoryImpl();
+    private static final BlockingQueue<PendingBid> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private static final ReadWriteLock running = new ReentrantReadWriteLock();
+    private static volatile Thread flusher;
+
+    private static class PendingBid {
+        private final Bid bid;
+        private final long deadline;
+        private final CompletableFuture<Boolean> inserted = new CompletableFuture<>();
+
+        PendingBid(Bid bid, long deadline) {
+            this.bid = bid;
+            this.deadline = deadline;
+        }
+
+        boolean failIfLate(long now) {
+            return deadline < now && inserted.completeExceptionally(new BadRequestException("Project deadline has been passed!"));
+        }
+    }
+
+    public static long getWaitMillis() {
+        return WAIT_MILLIS;
+    }
+
+    /**
+     * Inserts the bid on a project closing at {@code deadline}, returning false if the user has already bid on
+     * the project.
+     */
+    public static boolean insertBid(Bid bid, long deadline) {
+        PendingBid pending = new PendingBid(bid, deadline);
+        boolean queued;
+        running.readLock().lock();
+        try {
+            queued = flusher != null && queue.offer(pending);
+        } finally {
+            running.readLock().unlock();
+        }
+        if (!queued)
+            return auctionRepository.insertBid(bid);
+        try {
+            boolean inserted = pending.inserted.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            if (inserted)
+                UnitOfWork.recordWrite(Collections.singleton("Bid"));
+            return inserted;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("bid was not written within " + WAIT_MILLIS + " ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public static void start() {
+        running.writeLock().lock();
+        try {
+            if (flusher != null)
+                return;
+            flusher = new Thread(BidPipeline::run, "bid-pipeline");
+            flusher.setDaemon(true);
+            flusher.start();
+        } finally {
+            running.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops queueing, lets the flusher write what is queued and waits for it. Bids it couldn't get to fail.
+     */
+    public static void stop() {
+        Thread thread;
+        running.writeLock().lock();
+        try {
+            thread = flusher;
+            flusher = null;
+        } finally {
+            running.writeLock().unlock();
+        }
+        if (thread == null)
+            return;
+        try {
+            thread.join(STOP_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingBid> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        for (PendingBid pending: leftovers)
+            pending.inserted.completeExceptionally(new IllegalStateException("bid pipeline stopped"));
+    }
+
+    private static void run() {
+        List<PendingBid> batch = new ArrayList<>(BATCH_SIZE);
+        while (flusher == Thread.currentThread()) {
+            try {
+                PendingBid first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                long flushAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_MILLIS);
+                while (batch.size() < BATCH_SIZE) {
+                    PendingBid next = queue.poll(flushAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            write(batch, BidPipeline::flush);
+            batch.clear();
+        }
+        queue.drainTo(batch);
+        write(batch, BidPipeline::insertEach);
+    }
+
+    /**
+     * Runs {@code writer} in a unit of work; if that fails outright (no connection, say), the bids fail with it
+     * rather than leaving their callers waiting.
+     */
+    private static void write(List<PendingBid> batch, Consumer<List<PendingBid>> writer) {
+        try {
+            UnitOfWork.execute(() -> writer.accept(batch));
+        } catch (RuntimeException e) {
+            for (PendingBid pending: batch)
+                pending.inserted.completeExceptionally(e);
+        }
+    }
+    private static void flush(List<PendingBid> batch) {
+        long now = System.currentTimeMillis();
+        List<PendingBid> onTime = new ArrayList<>(batch.size());
+        List<Bid> bids = new ArrayList<>(batch.size());
+        for (PendingBid pending: batch) {
+            if (pending.failIfLate(now))
+                continue;
+            onTime.add(pending);
+            bids.add(pending.bid);
+        }
+        if (onTime.isEmpty())
+            return;
+        List<Boolean> inserted;
+        try {
+            inserted = UnitOfWork.executeInTransaction(() -> auctionRepository.insertBids(bids));
+        } catch (RuntimeException e) {
+            insertEach(onTime);
+            return;
+        }
+        for (int i = 0; i < onTime.size(); i++)
+            onTime.get(i).inserted.complete(inserted.get(i));
+    }
+
+    private static void insertEach(List<PendingBid> batch) {
+        for (PendingBid pending: batch) {
+            if (pending.failIfLate(System.currentTimeMillis()))
+                continue;
+            try {
+                pending.inserted.complete(auctionRepository.insertBid(pending.bid));
+            } catch (RuntimeException e) {
+                pending.inserted.completeExceptionally(e);
+            }
+        }
+    }
+
+    private BidPipeline() { }
+}
@@ -0,0 +1,97 @@
+package ir.ac.ut.joboonja.services;
+
+import ir.ac.ut.joboonja.database.DataVersions;
+import ir.ac.ut.joboonja.database.UnitOfWork;
+import ir.ac.ut.joboonja.entities.DataVersion;
+import ir.ac.ut.joboonja.utilities.Config;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Brings this node's in-memory state up to date with changes other nodes made. Every
+ * {@code joboonja.cluster.changePollMillis} it reads the data versions bumped within the last
+ * {@code joboonja.cluster.changeWindowMillis} and, for those whose counter moved since the last poll, reloads
+ * a user's skills into the skill index (dropping the user's cached feed) and a project's bids into its
+ * leaderboard. The counters then go into {@link DataVersions}' in-memory copy, after the state they tag.
+ *
+ * Reading a window instead of "since the last poll" catches bumps whose transaction committed late. This
+ * node's own changes come back too; reloading them is harmless.
+ */
+public class ChangeListener {
+    private static final long POLL_MILLIS = Config.getLong("joboonja.cluster.changePollMillis", 2 * 1000);
+    private static final long WINDOW_MILLIS = Config.getLong("joboonja.cluster.changeWindowMillis", 60 * 1000);
+
+    private static final Map<String, Long> seen = new HashMap<>();
+    private static Thread poller;
+
+    public static synchronized void start() {
+        if (poller != null)
+            return;
+        poller = new Thread(ChangeListener::run, "change-listener");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    public static synchronized void stop() {
+        if (poller == null)
+            return;
+        poller.interrupt();
+        poller = null;
+    }
+
+    /**
+     * Applies the changes seen since the last poll.
+     */
+    public static synchronized void poll() {
+        UnitOfWork.execute(() -> {
+            List<Integer> users = new ArrayList<>();
+            List<String> projects = new ArrayList<>();
+            Map<String, Long> counters = new HashMap<>();
+            List<DataVersion> changed = DataVersions.changedWithin(WINDOW_MILLIS);
+            for (DataVersion version: changed) {
+                String dataSet = version.getDataSet();
+                counters.put(dataSet, version.getCounter());
+                if (version.getCounter().equals(seen.get(dataSet)))
+                    continue;
+                if (dataSet.startsWith(DataVersions.USER_PREFIX))
+                    users.add(Integer.valueOf(dataSet.substring(DataVersions.USER_PREFIX.length())));
+                else if (dataSet.startsWith(DataVersions.BIDS_PREFIX))
+                    projects.add(dataSet.substring(DataVersions.BIDS_PREFIX.length()));
+            }
+            if (!users.isEmpty())
+                UserService.reloadUsers(users);
+            if (!projects.isEmpty())
+                AuctionService.refreshLeaderboards(projects);
+            for (DataVersion version: changed)
+                DataVersions.update(version);
+            seen.clear();
+            seen.putAll(counters);
+        });
+    }
+
+    /**
+     * Polls, then runs {@code work} before any other poll can change the in-memory state it reads.
+     */
+    public static synchronized <T> T pollThen(Supplier<T> work) {
+        poll();
+        return work.get();
+    }
+
+    private static void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private ChangeListener() { }
+}
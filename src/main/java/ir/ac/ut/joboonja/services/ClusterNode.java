@@ -0,0 +1,141 @@
+package ir.ac.ut.joboonja.services;
+
+import ir.ac.ut.joboonja.database.UnitOfWork;
+import ir.ac.ut.joboonja.entities.NodeHeartbeat;
+import ir.ac.ut.joboonja.repositories.ClusterRepository;
+import ir.ac.ut.joboonja.repositories.impl.ClusterRepositoryImpl;
+import ir.ac.ut.joboonja.utilities.Config;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One backend replica's membership in the cluster. A heartbeat thread records the node as alive every
+ * {@code joboonja.cluster.heartbeatMillis}, renews the job leases it holds and refreshes the list of live
+ * nodes, i.e. those seen within {@code joboonja.cluster.leaseMillis}. A node that stops heartbeating drops
+ * out of that list, and its leases expire, within one lease period.
+ *
+ * Work is partitioned by hashing its key over the live nodes. The process-wide node is {@link #local()};
+ * other instances with their own ids can share one database, e.g. to try several nodes in one process.
+ */
+public class ClusterNode {
+    private static final long LEASE_MILLIS = Config.getLong("joboonja.cluster.leaseMillis", 15 * 1000);
+    private static final long HEARTBEAT_MILLIS = Config.getLong("joboonja.cluster.heartbeatMillis", 5 * 1000);
+
+    private static ClusterRepository clusterRepository = new ClusterRepositoryImpl();
+    private static final ClusterNode local = new ClusterNode(
+        Config.get("joboonja.node.id", UUID.randomUUID().toString().substring(0, 8)));
+
+    private final String id;
+    private final Set<String> leases = ConcurrentHashMap.newKeySet();
+    private volatile List<String> liveNodes = Collections.emptyList();
+    private Thread heartbeat;
+
+    public ClusterNode(String id) {
+        this.id = id;
+    }
+
+    public static ClusterNode local() {
+        return local;
+    }
+
+    public static long getLeaseMillis() {
+        return LEASE_MILLIS;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public List<String> getLiveNodes() {
+        return liveNodes;
+    }
+
+    /**
+     * Whether this node owns the partition {@code key} hashes to. Before the first heartbeat, or when it
+     * has no live nodes to go by, a node owns everything.
+     */
+    public boolean owns(String key) {
+        List<String> nodes = liveNodes;
+        if (nodes.isEmpty())
+            return true;
+        return nodes.get(Math.floorMod(key.hashCode(), nodes.size())).equals(id);
+    }
+
+    /**
+     * Takes the named lease, or renews it if this node already holds it. Held leases are renewed by the
+     * heartbeat until {@link #releaseLease(String)} or {@link #stop()}.
+     */
+    public boolean acquireLease(String name) {
+        boolean acquired = UnitOfWork.execute(() -> clusterRepository.acquireLease(name, id, LEASE_MILLIS));
+        if (acquired)
+            leases.add(name);
+        else
+            leases.remove(name);
+        return acquired;
+    }
+
+    public void releaseLease(String name) {
+        if (leases.remove(name))
+            UnitOfWork.execute(() -> clusterRepository.releaseLease(name, id));
+    }
+
+    /**
+     * Writes the heartbeat and renews held leases; the live nodes are read afterwards in the same unit of
+     * work, so they come from the primary.
+     */
+    public void beat() {
+        UnitOfWork.execute(() -> {
+            clusterRepository.heartbeat(id);
+            for (String name: leases)
+                if (!clusterRepository.acquireLease(name, id, LEASE_MILLIS)) {
+                    leases.remove(name);
+                    System.err.println("node " + id + " lost lease " + name + " ...");
+                }
+            List<String> nodes = new ArrayList<>();
+            for (NodeHeartbeat node: clusterRepository.getLiveNodes(LEASE_MILLIS))
+                nodes.add(node.getNodeId());
+            if (!nodes.equals(liveNodes))
+                System.out.println("node " + id + " sees live nodes " + nodes + " ...");
+            liveNodes = Collections.unmodifiableList(nodes);
+        });
+    }
+
+    public synchronized void start() {
+        if (heartbeat != null)
+            return;
+        beat();
+        heartbeat = new Thread(this::run, "cluster-heartbeat-" + id);
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+    }
+
+    public synchronized void stop() {
+        if (heartbeat == null)
+            return;
+        heartbeat.interrupt();
+        heartbeat = null;
+        UnitOfWork.execute(() -> {
+            for (String name: leases)
+                clusterRepository.releaseLease(name, id);
+            clusterRepository.removeNode(id);
+        });
+        leases.clear();
+        liveNodes = Collections.emptyList();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(HEARTBEAT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                beat();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
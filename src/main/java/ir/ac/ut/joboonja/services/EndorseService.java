@@ -1,5 +1,6 @@
 package ir.ac.ut.joboonja.services;
 
+import ir.ac.ut.joboonja.database.UnitOfWork;
 import ir.ac.ut.joboonja.entities.Endorse;
 import ir.ac.ut.joboonja.entities.Skill;
 import ir.ac.ut.joboonja.entities.User;
@@ -19,17 +20,19 @@ public class EndorseService {
     public static Endorse endorseSkill(Integer endorsedId, String skillName, User loggedInUser) {
         Integer endorserId = loggedInUser.getId();
         Endorse endorse = new Endorse(endorserId, endorsedId, skillName);
-        User user = UserService.getUserById(endorsedId);
-        if (endorserId.equals(endorsedId))
-            throw new ForbiddenException("You can't endorse yourself!");
-        if (endorseRepository.endorseExists(endorse))
-            throw new BadRequestException("Already Endorsed!");
-        if (user.getSkills().indexOf(new Skill(skillName, 0)) == -1)
-            throw new BadRequestException("User doesn't have endorsed skill!");
-
-        endorseRepository.insertEndorse(endorse);
-        UserService.updateUserSkillPoint(endorsedId, skillName, 1);
-        return endorse;
+        return UnitOfWork.executeInTransaction(() -> {
+            User user = UserService.getUserById(endorsedId);
+            if (endorserId.equals(endorsedId))
+                throw new ForbiddenException("You can't endorse yourself!");
+            if (endorseRepository.endorseExists(endorse))
+                throw new BadRequestException("Already Endorsed!");
+            if (user.getSkills().indexOf(new Skill(skillName, 0)) == -1)
+                throw new BadRequestException("User doesn't have endorsed skill!");
+
+            endorseRepository.insertEndorse(endorse);
+            UserService.updateUserSkillPoint(endorsedId, skillName, 1);
+            return endorse;
+        });
     }
 
     public static List<EndorsableSkill> getUserEndorsableSkills(Integer endorserId, Integer endorsedId) {
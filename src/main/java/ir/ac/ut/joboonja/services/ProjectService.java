@@ -1,69 +1,233 @@
 package ir.ac.ut.joboonja.services;
 
+import ir.ac.ut.joboonja.database.BatchResult;
+import ir.ac.ut.joboonja.database.DataVersions;
+import ir.ac.ut.joboonja.database.UnitOfWork;
 import ir.ac.ut.joboonja.entities.*;
 import ir.ac.ut.joboonja.exceptions.ForbiddenException;
 import ir.ac.ut.joboonja.exceptions.NotFoundException;
+import ir.ac.ut.joboonja.index.EligibilityIndex;
+import ir.ac.ut.joboonja.index.FeedCache;
+import ir.ac.ut.joboonja.index.ProjectSearchIndex;
+import ir.ac.ut.joboonja.index.ProjectStore;
+import ir.ac.ut.joboonja.index.SkillDictionary;
+import ir.ac.ut.joboonja.models.ProjectCursor;
+import ir.ac.ut.joboonja.models.ProjectMatches;
+import ir.ac.ut.joboonja.models.ProjectPage;
 import ir.ac.ut.joboonja.repositories.ProjectRepository;
 import ir.ac.ut.joboonja.repositories.impl.ProjectRepositoryImpl;
+import ir.ac.ut.joboonja.utilities.Config;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class ProjectService {
     private static ProjectRepository projectRepository = new ProjectRepositoryImpl();
+    private static final int STREAM_CHUNK_SIZE = 256;
+    private static final long ARCHIVE_OVERLAP_MILLIS = Config.getLong("joboonja.archive.overlapMillis", 60 * 1000);
+    private static final long REFRESH_OVERLAP_MILLIS = Config.getLong("joboonja.sync.overlapMillis", 60 * 60 * 1000);
 
-    private static boolean hasEnoughSkills(User user, Project project) {
+    // archivedAt of the newest archived project this node has dropped from its indexes
+    private static long archivedWatermark = 0;
 
-        if (user == null || project == null)
-            return false;
+    public static void loadProjectIndexes() {
+        List<Project> projects = new ArrayList<>();
+        UnitOfWork.execute(() -> {
+            setArchivedWatermark(projectRepository.getLatestArchivedAt());
+            projectRepository.streamAllProjects(projects::add);
+        });
+        EligibilityIndex.addProjects(projects);
+        ProjectSearchIndex.addProjects(projects);
+        System.out.println("indexed " + EligibilityIndex.size() + " projects ...");
+    }
+
+    /**
+     * Indexes the projects that another node has synced since the indexes were loaded, and returns them.
+     * Only projects created after the newest indexed one are read, less {@code joboonja.sync.overlapMillis}
+     * for projects that reached the remote service out of order.
+     */
+    public static List<Project> refreshProjectIndexes() {
+        List<Project> projects = new ArrayList<>();
+        long createdAfter = EligibilityIndex.getLatestCreationDate() - REFRESH_OVERLAP_MILLIS;
+        projectRepository.streamProjectsCreatedAfter(createdAfter, project -> {
+            if (!EligibilityIndex.contains(project.getId()))
+                projects.add(project);
+        });
+        EligibilityIndex.addProjects(projects);
+        ProjectSearchIndex.addProjects(projects);
+        return projects;
+    }
 
-        boolean meets = true;
-        for (Skill skill: project.getSkills()) {
-            int skillIndex = user.getSkills().indexOf(skill);
-            if (skillIndex == -1)
-                meets = false;
-            else if (user.getSkills().get(skillIndex).getPoint() < skill.getPoint())
-                meets = false;
+    /**
+     * Drops archived projects from the in-memory indexes and caches, invalidating the feeds they were in.
+     */
+    public static void removeArchivedProjects(List<String> ids) {
+        Set<Integer> users = new HashSet<>();
+        for (String id: ids) {
+            List<Skill> requirements = EligibilityIndex.getRequirements(id);
+            if (requirements != null)
+                users.addAll(UserService.getEligibleUserIds(requirements));
         }
+        EligibilityIndex.removeProjects(ids);
+        ProjectSearchIndex.removeProjects(ids);
+        ProjectStore.removeAll(ids);
+        FeedCache.invalidate(users);
+        if (!ids.isEmpty())
+            DataVersions.bump(DataVersions.PROJECTS);
+    }
 
-        return meets;
+    /**
+     * Drops the projects archived, by this or another node, since the last call that are still indexed here,
+     * however long ago that was. archivedAt is set before the archiving transaction commits, so the read
+     * reaches {@code joboonja.archive.overlapMillis} further back to catch batches that committed or
+     * replicated late.
+     */
+    public static synchronized void removeRecentlyArchivedProjects() {
+        long latest = projectRepository.getLatestArchivedAt();
+        List<String> archived = new ArrayList<>();
+        for (String id: projectRepository.getProjectIdsArchivedAfter(archivedWatermark - ARCHIVE_OVERLAP_MILLIS))
+            if (EligibilityIndex.contains(id))
+                archived.add(id);
+        if (!archived.isEmpty())
+            removeArchivedProjects(archived);
+        setArchivedWatermark(latest);
     }
 
-    private static List<Project> filterValidProjects(List<Project> allProjects, User user) {
-        LinkedList<Project> result = new LinkedList<>();
-        for(Project project: allProjects){
-            if(hasEnoughSkills(user , project)) {
-                result.add(project);
-            }
-        }
-        return result;
+    private static synchronized void setArchivedWatermark(long archivedAt) {
+        archivedWatermark = Math.max(archivedWatermark, archivedAt);
+    }
+
+    /**
+     * {@code projects} without those that have been archived, so a sync doesn't bring them back.
+     */
+    public static List<Project> filterArchivedProjects(List<Project> projects) {
+        List<String> candidates = new ArrayList<>();
+        for (Project project: filterNewProjects(projects))
+            candidates.add(project.getId());
+        Set<String> archived = new HashSet<>(projectRepository.getArchivedProjectIds(candidates));
+        if (archived.isEmpty())
+            return projects;
+        List<Project> kept = new ArrayList<>(projects.size());
+        for (Project project: projects)
+            if (!archived.contains(project.getId()))
+                kept.add(project);
+        return kept;
+    }
+
+    public static List<Project> getPastWins(User user) {
+        return projectRepository.getArchivedProjectsWonBy(user.getId());
+    }
+
+    private static List<String> getFeed(User user) {
+        return FeedCache.get(user.getId(), SkillDictionary.toVector(user.getSkills()), () -> EligibilityIndex.getEligibleProjectIds(user));
+    }
+
+    private static List<Project> getProjects(List<String> ids) {
+        return ProjectStore.getAll(ids, projectRepository::getProjectsByIds);
+    }
+
+    public static List<Project> getProjectsByIds(List<String> ids) {
+        return getProjects(ids);
     }
 
     public static List<Project> getValidProjects(User user) {
-        return projectRepository.getAllProjects(user);
+        return getProjects(getFeed(user));
+    }
+
+    public static void streamValidProjects(User user, Consumer<Project> consumer) {
+        List<String> ids = getFeed(user);
+        for (int from = 0; from < ids.size(); from += STREAM_CHUNK_SIZE)
+            getProjects(ids.subList(from, Math.min(ids.size(), from + STREAM_CHUNK_SIZE))).forEach(consumer);
     }
 
     public static void insertProject(Project project) {
         projectRepository.insertProject(project);
     }
 
+    public static BatchResult insertProjects(List<Project> projects) {
+        List<Project> newProjects = filterNewProjects(projects);
+        BatchResult result = UnitOfWork.executeInTransaction(() -> projectRepository.insertProjects(projects));
+        EligibilityIndex.addProjects(projects);
+        ProjectSearchIndex.addProjects(projects);
+        ProjectStore.putAll(newProjects);
+        return result;
+    }
+
     public static List<Project> searchValidProjects(String filter, User user) {
-        return projectRepository.searchProjects(filter, user);
+        return searchProjectsPaginated(filter, null, null, user);
     }
 
     public static List<Project> getValidProjects(User user, Integer pageNumber, Integer pageSize) {
-        return projectRepository.getProjectsPaginated(user, pageNumber, pageSize);
+        return getProjects(page(getFeed(user), pageNumber, pageSize));
+    }
+
+    /**
+     * One page of a legacy pageNumber request; pages past the end, and negative numbers or sizes, are empty.
+     * The offset is computed in long so that a huge pageNumber can't overflow into a negative index.
+     */
+    static <T> List<T> page(List<T> items, int pageNumber, int pageSize) {
+        int size = Math.max(0, pageSize);
+        int from = (int) Math.min(items.size(), (long) Math.max(0, pageNumber) * size);
+        int to = (int) Math.min(items.size(), (long) from + size);
+        return items.subList(from, to);
+    }
+
+    /**
+     * The next cursor comes from the index page rather than the loaded projects, which may be fewer
+     * when some were archived meanwhile.
+     */
+    public static ProjectPage getValidProjects(User user, ProjectCursor after, int pageSize) {
+        List<ProjectCursor> positions = EligibilityIndex.getEligibleProjectsAfter(user, after, pageSize);
+        List<String> ids = new ArrayList<>(positions.size());
+        for (ProjectCursor position: positions)
+            ids.add(position.getId());
+        ProjectCursor next = positions.size() == pageSize ? positions.get(positions.size() - 1) : null;
+        return new ProjectPage(getProjects(ids), next);
+    }
+
+    public static ProjectPage searchProjectsAfter(String filter, ProjectCursor after, int pageSize, User user) {
+        List<ProjectSearchIndex.Hit> hits = ProjectSearchIndex.searchAfter(filter, EligibilityIndex.eligibleFor(user), after, pageSize);
+        ProjectCursor next = hits.size() == pageSize ? hits.get(hits.size() - 1).toCursor() : null;
+        return new ProjectPage(getProjects(hitIds(hits)), next);
     }
 
     public static List<Project> searchProjectsPaginated(String filter, Integer pageNumber, Integer pageSize, User user) {
-        return projectRepository.searchProjectsPaginated(filter, pageNumber, pageSize, user);
+        List<ProjectSearchIndex.Hit> hits = ProjectSearchIndex.search(filter, EligibilityIndex.eligibleFor(user));
+        if (pageNumber != null && pageSize != null)
+            hits = page(hits, pageNumber, pageSize);
+        return getProjects(hitIds(hits));
+    }
+
+    private static List<String> hitIds(List<ProjectSearchIndex.Hit> hits) {
+        List<String> ids = new ArrayList<>(hits.size());
+        for (ProjectSearchIndex.Hit hit: hits)
+            ids.add(hit.getId());
+        return ids;
+    }
+
+    public static List<Project> filterNewProjects(List<Project> projects) {
+        List<Project> newProjects = new ArrayList<>();
+        for (Project project: projects)
+            if (!EligibilityIndex.contains(project.getId()))
+                newProjects.add(project);
+        return newProjects;
+    }
+
+    public static ProjectMatches getProjectMatches(String projectId) {
+        List<Skill> requirements = EligibilityIndex.getRequirements(projectId);
+        if (requirements == null)
+            throw new NotFoundException("Project not found!");
+        return new ProjectMatches(projectId, UserService.getEligibleUserIds(requirements));
     }
 
     public static Project getProjectById(String id, User user) {
-        Project project = projectRepository.getProjectById(id, user);
+        Project project = ProjectStore.get(id, projectRepository::getProjectsByIds);
         if (project == null)
             throw new NotFoundException("Project not found!");
-        if (!hasEnoughSkills(user, project))
+        if (!EligibilityIndex.isEligible(project, user))
             throw new ForbiddenException("Access to project is forbidden!");
         return project;
     }
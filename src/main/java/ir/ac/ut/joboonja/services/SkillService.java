@@ -1,5 +1,6 @@
 package ir.ac.ut.joboonja.services;
 
+import ir.ac.ut.joboonja.database.BatchResult;
 import ir.ac.ut.joboonja.entities.Skill;
 import ir.ac.ut.joboonja.repositories.SkillRepository;
 import ir.ac.ut.joboonja.repositories.impl.SkillRepositoryImpl;
@@ -13,6 +14,10 @@ public class SkillService {
         skillRepository.insertSkill(skill);
     }
 
+    public static BatchResult insertSkills(List<Skill> skills) {
+        return skillRepository.insertSkills(skills);
+    }
+
     public static List<Skill> getAllSkills() {
         return skillRepository.getAllSkills();
     }
@@ -1,18 +1,45 @@
 package ir.ac.ut.joboonja.services;
 
+import ir.ac.ut.joboonja.database.UnitOfWork;
 import ir.ac.ut.joboonja.entities.Skill;
 import ir.ac.ut.joboonja.entities.User;
 import ir.ac.ut.joboonja.exceptions.BadRequestException;
 import ir.ac.ut.joboonja.exceptions.NotFoundException;
+import ir.ac.ut.joboonja.index.FeedCache;
+import ir.ac.ut.joboonja.index.UserSkillIndex;
 import ir.ac.ut.joboonja.repositories.UserRepository;
 import ir.ac.ut.joboonja.repositories.impl.UserRepositoryImpl;
 import org.apache.commons.codec.digest.DigestUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class UserService {
     private static UserRepository userRepository = new UserRepositoryImpl();
+    // usernames and ids never change, so the ids of users already read are kept
+    private static final ConcurrentHashMap<String, Integer> userIds = new ConcurrentHashMap<>();
+
+    public static void loadSkillIndex() {
+        UnitOfWork.execute(() -> userRepository.streamAllUsers(UserSkillIndex::addUser));
+        System.out.println("indexed user skills ...");
+    }
+
+    /**
+     * Re-reads the users' skills into the skill index, for changes made by other nodes.
+     */
+    public static void reloadUsers(List<Integer> userIds) {
+        List<User> users = userRepository.getUsersByIds(userIds);
+        for (User user: users)
+            UserSkillIndex.setUser(user);
+        FeedCache.invalidate(userIds);
+        AuctionService.rescoreBidders(users);
+    }
+
+    public static List<Integer> getEligibleUserIds(List<Skill> requirements) {
+        return UserSkillIndex.findEligibleUsers(requirements);
+    }
 
     public static User getUserById(Integer id){
         User user = userRepository.getUserById(id);
@@ -25,19 +52,28 @@ public class UserService {
         User user = userRepository.getUser(username);
         if (user == null)
             throw new NotFoundException("User not found");
+        userIds.put(username, user.getId());
         return user;
     }
 
+    /**
+     * The id of a user read before on this node, without touching the database; null otherwise.
+     */
+    public static Integer getKnownUserId(String username) {
+        return userIds.get(username);
+    }
+
     public static List<User> getAllUsers(User user) {
-        List<User> users = userRepository.getAllUsers();
-        List<User> newList = new ArrayList<>(users);
-        for(User u:newList){
-            if(u.getId().equals(user.getId())){
-                newList.remove(u);
-                break;
-            }
-        }
-        return newList;
+        List<User> users = new ArrayList<>();
+        streamAllUsers(user, users::add);
+        return users;
+    }
+
+    public static void streamAllUsers(User user, Consumer<User> consumer) {
+        userRepository.streamAllUsers(u -> {
+            if (!u.getId().equals(user.getId()))
+                consumer.accept(u);
+        });
     }
 
     public static void addUserSkill(String skillName, User user) {
@@ -47,6 +83,11 @@ public class UserService {
         if (user.getSkills().indexOf(skill) != -1)
             throw new BadRequestException("User already has " + skillName + " skill!");
         userRepository.addUserSkill(user.getId(), skillName);
+        UnitOfWork.afterCommit(() -> {
+            UserSkillIndex.setPoints(user.getId(), skillName, 0);
+            FeedCache.invalidate(user.getId());
+            AuctionService.rescoreBidder(user.getId());
+        });
     }
 
     public static void deleteUserSkill(String skillName, User user) {
@@ -56,6 +97,11 @@ public class UserService {
         if (user.getSkills().indexOf(skill) == -1)
             throw new BadRequestException("User doesn't have " + skillName + " skill!");
         userRepository.deleteUserSkill(user.getId(), skillName);
+        UnitOfWork.afterCommit(() -> {
+            UserSkillIndex.removeSkill(user.getId(), skillName);
+            FeedCache.invalidate(user.getId());
+            AuctionService.rescoreBidder(user.getId());
+        });
     }
 
     public static List<User> searchUsers(String filter, User user) {
@@ -70,5 +116,10 @@ public class UserService {
 
     public static void updateUserSkillPoint(Integer endorsedId, String skillName, int points) {
         userRepository.updateUserSkillPoint(endorsedId, skillName, points);
+        UnitOfWork.afterCommit(() -> {
+            UserSkillIndex.addPoints(endorsedId, skillName, points);
+            FeedCache.invalidate(endorsedId);
+            AuctionService.rescoreBidder(endorsedId);
+        });
     }
 }
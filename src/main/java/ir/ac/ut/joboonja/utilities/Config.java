@@ -0,0 +1,46 @@
+package ir.ac.ut.joboonja.utilities;
+
+public class Config {
+
+    /**
+     * Reads a setting from the JVM system properties (e.g. {@code -Djoboonja.batch.chunkSize=500}),
+     * then from the environment (e.g. {@code JOBOONJA_BATCH_CHUNKSIZE=500}), then falls back to the default.
+     */
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null)
+            value = System.getenv(key.toUpperCase().replace('.', '_'));
+        return value == null ? defaultValue : value;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(get(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("invalid value for " + key + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Like {@link #getInt}, for sizes that must be at least 1.
+     */
+    public static int getPositiveInt(String key, int defaultValue) {
+        int value = getInt(key, defaultValue);
+        if (value > 0)
+            return value;
+        System.err.println("invalid value for " + key + ", using " + defaultValue);
+        return defaultValue;
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(get(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("invalid value for " + key + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private Config() { }
+}
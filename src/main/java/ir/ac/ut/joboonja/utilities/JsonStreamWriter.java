@@ -0,0 +1,62 @@
+package ir.ac.ut.joboonja.utilities;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a JSON array to the response one element at a time, so a list endpoint never holds
+ * the whole result or its serialized form in memory. Output goes through the response buffer and
+ * is sent chunked once it fills.
+ *
+ * The array is only closed when every element was written. If writing fails before anything was sent,
+ * the buffered output is discarded so the error response replaces it; after that the exception is left
+ * to abort the connection, and the client sees a truncated body rather than a well-formed partial list.
+ */
+public class JsonStreamWriter {
+    private static final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+        .build();
+
+    private JsonGenerator generator;
+
+    public interface Elements {
+        void writeTo(JsonStreamWriter writer) throws IOException;
+    }
+
+    private JsonStreamWriter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    public static void writeArray(HttpServletResponse response, Elements elements) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        JsonGenerator generator = mapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        boolean written = false;
+        try {
+            generator.writeStartArray();
+            elements.writeTo(new JsonStreamWriter(generator));
+            generator.writeEndArray();
+            generator.close();
+            written = true;
+        } finally {
+            if (!written && !response.isCommitted())
+                response.resetBuffer();
+        }
+    }
+
+    public void write(Object element) {
+        try {
+            mapper.writeValue(generator, element);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
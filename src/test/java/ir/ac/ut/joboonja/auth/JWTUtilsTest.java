@@ -0,0 +1,41 @@
+package ir.ac.ut.joboonja.auth;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JWTUtilsTest {
+
+    static {
+        System.setProperty("joboonja.events.tokenMillis", "2000");
+    }
+
+    @Test
+    public void eachTokenIsOnlyAcceptedForItsOwnPurpose() {
+        String apiToken = JWTUtils.createJWT("alice");
+        String streamToken = JWTUtils.createStreamJWT("alice");
+
+        assertEquals("alice", JWTUtils.verifyJWT(apiToken));
+        assertEquals("alice", JWTUtils.verifyStreamJWT(streamToken));
+        assertNull(JWTUtils.verifyJWT(streamToken));
+        assertNull(JWTUtils.verifyStreamJWT(apiToken));
+    }
+
+    @Test
+    public void streamTokensExpire() throws InterruptedException {
+        String streamToken = JWTUtils.createStreamJWT("alice");
+        // expiry is stored in whole seconds, so a token may live up to a second less or more
+        Thread.sleep(3100);
+
+        assertNull(JWTUtils.verifyStreamJWT(streamToken));
+        assertEquals("alice", JWTUtils.verifyJWT(JWTUtils.createJWT("alice")));
+    }
+
+    @Test
+    public void tamperedTokensAreRejected() {
+        String streamToken = JWTUtils.createStreamJWT("alice");
+
+        assertNull(JWTUtils.verifyStreamJWT(streamToken.substring(0, streamToken.length() - 2) + "xx"));
+        assertNull(JWTUtils.verifyStreamJWT("not a token"));
+    }
+}
@@ -0,0 +1,77 @@
+package ir.ac.ut.joboonja.database;
+
+import ir.ac.ut.joboonja.entities.Skill;
+import ir.ac.ut.joboonja.repositories.impl.DataVersionRepositoryImpl;
+import ir.ac.ut.joboonja.repositories.impl.SkillRepositoryImpl;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * The replica is an H2 database that never receives the primary's writes, i.e. one that lags forever.
+ */
+public class QueryCacheTest {
+    private static final String PRIMARY = "jdbc:h2:mem:cachePrimary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA = "jdbc:h2:mem:cacheReplica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    static {
+        System.setProperty("joboonja.db.url", PRIMARY);
+        System.setProperty("joboonja.db.replicas", REPLICA);
+        System.setProperty("joboonja.db.replicaCheckMillis", "0");
+    }
+
+    private final SkillRepositoryImpl skillRepository = new SkillRepositoryImpl();
+
+    @BeforeClass
+    public static void createTables() throws SQLException {
+        for (String url: new String[]{PRIMARY, REPLICA}) {
+            try (Connection connection = DriverManager.getConnection(url, "root", "mypassword");
+                 Statement statement = connection.createStatement()) {
+                statement.execute(SkillRepositoryImpl.getCreateScript());
+                statement.execute(DataVersionRepositoryImpl.getCreateScript());
+            }
+        }
+    }
+
+    @Test
+    public void entriesAreFilledFromThePrimaryAfterAnInvalidatingWrite() {
+        assertFalse(names(skillRepository.getAllSkills()).contains("Java"));
+
+        UnitOfWork.execute(() -> skillRepository.insertSkill(new Skill("Java", 0)));
+        assertTrue(names(skillRepository.getAllSkills()).contains("Java"));
+
+        try (Connection connection = ResourcePool.getReadConnection()) {
+            assertEquals(REPLICA.split(";")[0], connection.getMetaData().getURL());
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void callersGetTheirOwnCopies() {
+        UnitOfWork.execute(() -> skillRepository.insertSkill(new Skill("SQL", 0)));
+        List<Skill> skills = skillRepository.getAllSkills();
+        for (Skill skill: skills)
+            skill.setName("changed");
+        skills.clear();
+
+        List<String> names = names(skillRepository.getAllSkills());
+        assertFalse(names.contains("changed"));
+        assertTrue(names.contains("SQL"));
+    }
+
+    private static List<String> names(List<Skill> skills) {
+        List<String> names = new ArrayList<>();
+        for (Skill skill: skills)
+            names.add(skill.getName());
+        return names;
+    }
+}
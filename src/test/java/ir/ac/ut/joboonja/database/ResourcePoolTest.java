@@ -0,0 +1,135 @@
+package ir.ac.ut.joboonja.database;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Failover between a primary and two replicas, all H2 in-memory databases: "replica" is healthy and
+ * "missing" can't be connected to. Replication is simulated by copying the heartbeat by hand.
+ */
+public class ResourcePoolTest {
+    private static final String PRIMARY = "jdbc:h2:mem:primary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA = "jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String MISSING = "jdbc:h2:mem:missing;IFEXISTS=TRUE";
+    private static final long EJECT_MILLIS = 300;
+
+    static {
+        System.setProperty("joboonja.db.url", PRIMARY);
+        System.setProperty("joboonja.db.replicas", REPLICA + "," + MISSING);
+        System.setProperty("joboonja.db.replicaEjectMillis", String.valueOf(EJECT_MILLIS));
+        System.setProperty("joboonja.db.replicaCheckMillis", "0");
+        System.setProperty("joboonja.db.replicaMaxLagMillis", "5000");
+    }
+
+    @BeforeClass
+    public static void createTables() throws SQLException {
+        try (Connection connection = ResourcePool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(ResourcePool.getCreateHeartbeatScript());
+        }
+        try (Connection connection = openReplica(); Statement statement = connection.createStatement()) {
+            statement.execute(ResourcePool.getCreateHeartbeatScript());
+        }
+    }
+
+    @Test
+    public void mergesMissingOptionsIntoMysqlUrls() {
+        String merged = ResourcePool.withConnectionOptions("jdbc:mysql://database:3306/IE?useSSL=false&useCursorFetch=false");
+        assertTrue(merged.startsWith("jdbc:mysql://database:3306/IE?useSSL=false&useCursorFetch=false&"));
+        assertTrue(merged.contains("&useServerPrepStmts=true"));
+        assertFalse(merged.contains("useCursorFetch=true"));
+
+        assertEquals("jdbc:mysql://database:3306/IE?useUnicode=yes&characterEncoding=UTF-8&useCursorFetch=true&useServerPrepStmts=true",
+                ResourcePool.withConnectionOptions("jdbc:mysql://database:3306/IE"));
+        assertEquals(PRIMARY, ResourcePool.withConnectionOptions(PRIMARY));
+    }
+
+    @Test
+    public void unreachableReplicaIsEjectedAndReadsGoToTheHealthyOne() throws Exception {
+        awaitReadmitted();
+        for (int i = 0; i < 4; i++) {
+            try (Connection connection = ResourcePool.getReadConnection()) {
+                assertEquals("replica", databaseOf(connection));
+            }
+        }
+        assertTrue(ResourcePool.isEjected(MISSING));
+        assertFalse(ResourcePool.isEjected(REPLICA));
+    }
+
+    @Test
+    public void laggingReplicaIsEjectedUntilItCatchesUp() throws Exception {
+        awaitReadmitted();
+        try (Connection connection = openReplica(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM ReplicationHeartbeat");
+        }
+        ResourcePool.checkReplicas();
+        assertTrue(ResourcePool.isEjected(REPLICA));
+        try (Connection connection = ResourcePool.getReadConnection()) {
+            assertEquals("primary", databaseOf(connection));
+        }
+
+        replicateHeartbeat(-60 * 1000);
+        awaitReadmitted();
+        ResourcePool.checkReplicas();
+        assertTrue(ResourcePool.isEjected(REPLICA));
+
+        replicateHeartbeat(0);
+        awaitReadmitted();
+        ResourcePool.checkReplicas();
+        assertFalse(ResourcePool.isEjected(REPLICA));
+        try (Connection connection = ResourcePool.getReadConnection()) {
+            assertEquals("replica", databaseOf(connection));
+        }
+    }
+
+    @Test
+    public void onlyConnectionFailuresOnReadsEjectTheReplica() throws Exception {
+        awaitReadmitted();
+        Connection connection = ResourcePool.getReadConnection();
+        try {
+            assertEquals("replica", databaseOf(connection));
+            ResourcePool.readFailed(connection, new SQLSyntaxErrorException("bad query", "42000"));
+            assertFalse(ResourcePool.isEjected(REPLICA));
+            ResourcePool.readFailed(connection, new SQLNonTransientConnectionException("connection lost", "08S01"));
+            assertTrue(ResourcePool.isEjected(REPLICA));
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static Connection openReplica() throws SQLException {
+        return DriverManager.getConnection(REPLICA, "root", "mypassword");
+    }
+
+    private static String databaseOf(Connection connection) throws SQLException {
+        String url = connection.getMetaData().getURL();
+        return url.substring("jdbc:h2:mem:".length()).split(";")[0];
+    }
+
+    /**
+     * Copies the primary's heartbeat to the replica, shifted by {@code offsetMillis}.
+     */
+    private static void replicateHeartbeat(long offsetMillis) throws SQLException {
+        ResourcePool.checkReplicas();
+        long beatAt;
+        try (Connection connection = ResourcePool.getConnection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT beatAt FROM ReplicationHeartbeat WHERE id = 1")) {
+            assertTrue(resultSet.next());
+            beatAt = resultSet.getLong(1);
+        }
+        try (Connection connection = openReplica();
+             PreparedStatement statement = connection.prepareStatement("MERGE INTO ReplicationHeartbeat KEY (id) VALUES (1, ?)")) {
+            statement.setLong(1, beatAt + offsetMillis);
+            statement.executeUpdate();
+        }
+    }
+
+    private static void awaitReadmitted() throws InterruptedException {
+        while (ResourcePool.isEjected(REPLICA))
+            Thread.sleep(50);
+        Thread.sleep(EJECT_MILLIS);
+    }
+}
@@ -0,0 +1,49 @@
+package ir.ac.ut.joboonja.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UnitOfWorkTest {
+
+    static {
+        System.setProperty("joboonja.db.url", "jdbc:h2:mem:unitOfWork;MODE=MySQL;DB_CLOSE_DELAY=-1");
+    }
+
+    @Test
+    public void afterCommitRunsOnceTheOutermostTransactionCommits() {
+        List<String> ran = new ArrayList<>();
+        UnitOfWork.executeInTransaction(() -> {
+            UnitOfWork.executeInTransaction(() -> UnitOfWork.afterCommit(() -> ran.add("inner")));
+            assertTrue(ran.isEmpty());
+            UnitOfWork.afterCommit(() -> ran.add("outer"));
+            assertTrue(ran.isEmpty());
+        });
+        assertEquals(2, ran.size());
+    }
+
+    @Test
+    public void afterCommitIsDroppedOnRollback() {
+        List<String> ran = new ArrayList<>();
+        try {
+            UnitOfWork.executeInTransaction(() -> {
+                UnitOfWork.afterCommit(() -> ran.add("action"));
+                throw new IllegalStateException("failed");
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(ran.isEmpty());
+        }
+    }
+
+    @Test
+    public void afterCommitRunsRightAwayOutsideATransaction() {
+        List<String> ran = new ArrayList<>();
+        UnitOfWork.execute(() -> UnitOfWork.afterCommit(() -> ran.add("action")));
+        UnitOfWork.afterCommit(() -> ran.add("action"));
+        assertEquals(2, ran.size());
+    }
+}
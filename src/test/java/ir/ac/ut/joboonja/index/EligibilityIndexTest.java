@@ -0,0 +1,98 @@
+package ir.ac.ut.joboonja.index;
+
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.entities.Skill;
+import ir.ac.ut.joboonja.entities.User;
+import ir.ac.ut.joboonja.models.ProjectCursor;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class EligibilityIndexTest {
+
+    private static Project project(int number, String skill, int point) {
+        List<Skill> skills = new ArrayList<>(Collections.singletonList(new Skill(skill, point)));
+        return new Project("p" + number, "title", "description", null, 100, 0L, (long) number, skills);
+    }
+
+    private static User user(String skill, int point) {
+        return new User(1, "user", "first", "last", "title", "bio", new LinkedList<>(Collections.singletonList(new Skill(skill, point))));
+    }
+
+    @Test
+    public void cursorPagesVisitEveryEligibleProjectOnceEvenWhenProjectsAreRemoved() {
+        List<Project> projects = new ArrayList<>();
+        Set<String> eligible = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            projects.add(project(i, "Paging", i % 3));
+            if (i % 3 < 2)
+                eligible.add("p" + i);
+        }
+        EligibilityIndex.addProjects(projects);
+        User user = user("Paging", 1);
+
+        List<String> seen = new ArrayList<>();
+        ProjectCursor after = null;
+        boolean removed = false;
+        while (true) {
+            List<ProjectCursor> page = EligibilityIndex.getEligibleProjectsAfter(user, after, 7);
+            for (ProjectCursor position: page)
+                seen.add(position.getId());
+            if (page.size() < 7)
+                break;
+            after = page.get(page.size() - 1);
+            if (!removed) {
+                // the page's last project goes away before the next page is read
+                EligibilityIndex.removeProjects(Collections.singletonList(after.getId()));
+                removed = true;
+            }
+        }
+
+        assertEquals(new HashSet<>(seen).size(), seen.size());
+        assertEquals(eligible, new HashSet<>(seen));
+        for (int i = 1; i < seen.size(); i++)
+            assertTrue(Integer.parseInt(seen.get(i - 1).substring(1)) > Integer.parseInt(seen.get(i).substring(1)));
+    }
+
+    @Test
+    public void mergedSnapshotsKeepFeedOrderAndRequirements() {
+        Random random = new Random(9);
+        List<String> expected = new ArrayList<>();
+        Map<String, Long> creationDates = new HashMap<>();
+        for (int round = 0; round < 20; round++) {
+            List<Project> batch = new ArrayList<>();
+            for (int i = 0; i < 25; i++) {
+                int number = 1000 + round * 25 + i;
+                long creationDate = random.nextInt(200);
+                // odd points are above what the user has
+                Project project = project(number, "Merging", random.nextInt(4));
+                project.setCreationDate(creationDate);
+                batch.add(project);
+                creationDates.put(project.getId(), creationDate);
+                if (project.getSkills().get(0).getPoint() < 2)
+                    expected.add(project.getId());
+            }
+            // a re-sync repeats projects that are already indexed
+            batch.add(batch.get(0));
+            EligibilityIndex.addProjects(batch);
+            if (round % 5 == 4) {
+                List<String> removed = expected.subList(0, 3);
+                EligibilityIndex.removeProjects(new ArrayList<>(removed));
+                removed.clear();
+            }
+        }
+        expected.sort((a, b) -> {
+            int result = Long.compare(creationDates.get(b), creationDates.get(a));
+            return result != 0 ? result : b.compareTo(a);
+        });
+
+        List<String> eligible = new ArrayList<>();
+        for (String id: EligibilityIndex.getEligibleProjectIds(user("Merging", 1)))
+            if (creationDates.containsKey(id))
+                eligible.add(id);
+        assertEquals(expected, eligible);
+        assertEquals("Merging", EligibilityIndex.getRequirements(expected.get(0)).get(0).getName());
+    }
+}
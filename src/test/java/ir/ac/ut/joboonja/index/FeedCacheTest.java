@@ -0,0 +1,61 @@
+package ir.ac.ut.joboonja.index;
+
+import ir.ac.ut.joboonja.entities.Skill;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FeedCacheTest {
+
+    private static int[] skills(Skill... skills) {
+        return SkillDictionary.toVector(Arrays.asList(skills));
+    }
+
+    @Test
+    public void feedComputedFromAStaleUserIsNotServedForItsNewSkills() {
+        int[] before = skills(new Skill("FeedJava", 1));
+        int[] after = skills(new Skill("FeedJava", 2));
+        AtomicInteger loads = new AtomicInteger();
+
+        // the user was read before the endorsement, its invalidation ran before this lookup
+        FeedCache.invalidate(1);
+        assertEquals(Collections.singletonList("old"), FeedCache.get(1, before, () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList("old");
+        }));
+
+        assertEquals(Collections.singletonList("new"), FeedCache.get(1, after, () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList("new");
+        }));
+        assertEquals(Collections.singletonList("new"), FeedCache.get(1, after, () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList("other");
+        }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void vectorsFromBeforeTheDictionaryGrewStillHit() {
+        int[] skills = skills(new Skill("FeedSql", 3));
+        FeedCache.get(2, skills, () -> Collections.singletonList("feed"));
+        SkillDictionary.idOf("FeedSkillAddedLater");
+
+        int[] longer = skills(new Skill("FeedSql", 3));
+        assertTrue(longer.length > skills.length);
+        assertEquals(Collections.singletonList("feed"), FeedCache.get(2, longer, () -> Collections.singletonList("reloaded")));
+    }
+
+    @Test
+    public void feedComputedDuringAnInvalidationIsNotCached() {
+        int[] skills = skills(new Skill("FeedGo", 1));
+        FeedCache.get(3, skills, () -> {
+            FeedCache.invalidate(3);
+            return Collections.singletonList("racing");
+        });
+        assertEquals(Collections.singletonList("fresh"), FeedCache.get(3, skills, () -> Collections.singletonList("fresh")));
+    }
+}
@@ -0,0 +1,109 @@
+package ir.ac.ut.joboonja.index;
+
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.models.ProjectCursor;
+import ir.ac.ut.joboonja.repositories.impl.ProjectRepositoryImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of search results over a synthetic catalog: {@link ProjectSearchIndex} against the
+ * {@code title LIKE '%x%' or description LIKE '%x%'} scan it replaced, run on an in-memory database.
+ * Run with {@code mvn test-compile} and then the {@link #main} method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectSearchBenchmark {
+    private static final String[] WORDS = {
+        "android", "backend", "design", "java", "react", "database", "website", "mobile", "api", "payment",
+        "shop", "crm", "report", "chat", "game", "seo", "cloud", "migration", "testing", "analytics"
+    };
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000", "50000"})
+    private int projects;
+
+    @Param({"java", "pay"})
+    private String query;
+
+    private Connection connection;
+    private PreparedStatement like;
+    private ProjectCursor secondPage;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:searchBenchmark" + projects + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(ProjectRepositoryImpl.getCreateScript());
+        }
+        Random random = new Random(projects);
+        List<Project> catalog = new ArrayList<>(projects);
+        try (PreparedStatement insert = connection.prepareStatement("insert into Project values (?, ?, ?, null, 1000, 0, ?)")) {
+            for (int p = 0; p < projects; p++) {
+                Project project = new Project("project" + p, sentence(random, 4), sentence(random, 40), null, 1000, 0L, (long) p, new ArrayList<>());
+                catalog.add(project);
+                insert.setString(1, project.getId());
+                insert.setString(2, project.getTitle());
+                insert.setString(3, project.getDescription());
+                insert.setLong(4, project.getCreationDate());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        ProjectSearchIndex.addProjects(catalog);
+        like = connection.prepareStatement("select * from Project p where p.title like ? or p.description like ? " +
+            "order by p.creationDate desc, p.id desc limit ?");
+        List<ProjectSearchIndex.Hit> firstPage = ProjectSearchIndex.searchAfter(query, id -> true, null, PAGE_SIZE);
+        secondPage = firstPage.get(firstPage.size() - 1).toCursor();
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int w = 0; w < words; w++)
+            sentence.append(w == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(50) == 0 ? "ing" : "");
+        return sentence.toString();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void likeScan(Blackhole blackhole) throws SQLException {
+        like.setString(1, "%" + query + "%");
+        like.setString(2, "%" + query + "%");
+        like.setInt(3, PAGE_SIZE);
+        try (ResultSet resultSet = like.executeQuery()) {
+            while (resultSet.next())
+                blackhole.consume(resultSet.getString(1));
+        }
+    }
+
+    @Benchmark
+    public List<ProjectSearchIndex.Hit> indexFirstPage() {
+        return ProjectSearchIndex.searchAfter(query, id -> true, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<ProjectSearchIndex.Hit> indexSecondPage() {
+        return ProjectSearchIndex.searchAfter(query, id -> true, secondPage, PAGE_SIZE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProjectSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
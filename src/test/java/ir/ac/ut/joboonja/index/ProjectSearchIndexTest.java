@@ -0,0 +1,93 @@
+package ir.ac.ut.joboonja.index;
+
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.models.ProjectCursor;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ProjectSearchIndexTest {
+
+    private static Project project(String id, String title, String description, long creationDate) {
+        return new Project(id, title, description, null, 100, 0L, creationDate, new ArrayList<>());
+    }
+
+    private static List<String> ids(List<ProjectSearchIndex.Hit> hits) {
+        List<String> ids = new ArrayList<>();
+        for (ProjectSearchIndex.Hit hit: hits)
+            ids.add(hit.getId());
+        return ids;
+    }
+
+    @Test
+    public void pagesMatchTheFullRanking() {
+        List<Project> projects = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+            projects.add(project("rank" + i, i % 4 == 0 ? "ranking ranking" : "ranking", "text " + i, i));
+        ProjectSearchIndex.addProjects(projects);
+
+        List<String> all = ids(ProjectSearchIndex.search("ranking", id -> id.startsWith("rank")));
+        List<String> paged = new ArrayList<>();
+        ProjectCursor after = null;
+        while (true) {
+            List<ProjectSearchIndex.Hit> page = ProjectSearchIndex.searchAfter("ranking", id -> id.startsWith("rank"), after, 6);
+            paged.addAll(ids(page));
+            if (page.size() < 6)
+                break;
+            after = ProjectCursor.decode(page.get(page.size() - 1).toCursor().encode());
+        }
+        assertEquals(40, all.size());
+        assertEquals(all, paged);
+    }
+
+    @Test
+    public void projectsAddedBetweenPagesDoNotShiftTheCursor() {
+        List<Project> projects = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+            projects.add(project("drift" + i, i % 3 == 0 ? "drifting drifting" : "drifting", "about " + (i % 5 == 0 ? "drifting" : "other"), i));
+        ProjectSearchIndex.addProjects(projects);
+
+        Set<String> seen = new HashSet<>();
+        List<ProjectSearchIndex.Hit> page = ProjectSearchIndex.searchAfter("drifting", id -> id.startsWith("drift"), null, 10);
+        for (ProjectSearchIndex.Hit hit: page)
+            seen.add(hit.getId());
+
+        // the new projects change the idf of "drifting", and with it every score
+        List<Project> later = new ArrayList<>();
+        for (int i = 0; i < 200; i++)
+            later.add(project("later" + i, "drifting", "", 1000 + i));
+        ProjectSearchIndex.addProjects(later);
+
+        ProjectCursor after = ProjectCursor.decode(page.get(page.size() - 1).toCursor().encode());
+        while (true) {
+            page = ProjectSearchIndex.searchAfter("drifting", id -> id.startsWith("drift"), after, 10);
+            for (ProjectSearchIndex.Hit hit: page)
+                assertTrue("repeated " + hit.getId(), seen.add(hit.getId()));
+            if (page.size() < 10)
+                break;
+            after = ProjectCursor.decode(page.get(page.size() - 1).toCursor().encode());
+        }
+        assertEquals(30, seen.size());
+    }
+
+    @Test
+    public void prefixesExpandToEveryMatchingTerm() {
+        List<Project> projects = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            projects.add(project("prefix" + i, "zq" + i + "word", "", i));
+        ProjectSearchIndex.addProjects(projects);
+
+        assertEquals(100, ProjectSearchIndex.search("zq", id -> true).size());
+        assertEquals(0, ProjectSearchIndex.search("z", id -> id.startsWith("prefix")).size());
+    }
+
+    @Test
+    public void persianAndArabicVariantsMatch() {
+        ProjectSearchIndex.addProjects(Collections.singletonList(project("variant", "طراحي سايت", "كاربردي", 0)));
+
+        assertEquals(Collections.singletonList("variant"), ids(ProjectSearchIndex.search("طراحی", id -> true)));
+        assertEquals(Collections.singletonList("variant"), ids(ProjectSearchIndex.search("کاربردی", id -> true)));
+    }
+}
@@ -0,0 +1,97 @@
+package ir.ac.ut.joboonja.repositories.impl;
+
+import ir.ac.ut.joboonja.database.ResultColumns;
+import ir.ac.ut.joboonja.database.RowMapper;
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.entities.Skill;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping cost per row of the Project/ProjectSkill join: the compiled mapper of {@link ProjectRepositoryImpl}
+ * against the name-based lookups it replaced. The rows are read from a scrollable in-memory result so that
+ * only the mapping is measured. Run with {@code mvn test-compile} and then the {@link #main} method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+    private static final int PROJECTS = 1000;
+    private static final int SKILLS_PER_PROJECT = 5;
+
+    private Connection connection;
+    private ResultSet resultSet;
+    private RowMapper<Project> compiled;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:rowMapperBenchmark;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(SkillRepositoryImpl.getCreateScript());
+            statement.executeUpdate(ProjectRepositoryImpl.getCreateScript());
+            statement.executeUpdate(ProjectRepositoryImpl.getCreateProjectSkillScript());
+            for (int s = 0; s < SKILLS_PER_PROJECT; s++)
+                statement.executeUpdate("insert into Skill values ('skill" + s + "')");
+            for (int p = 0; p < PROJECTS; p++) {
+                statement.executeUpdate("insert into Project values ('project" + p + "', 'title', 'description', 'image', 1000, " + p + ", " + p + ")");
+                for (int s = 0; s < SKILLS_PER_PROJECT; s++)
+                    statement.executeUpdate("insert into ProjectSkill values ('project" + p + "', 'skill" + s + "', " + s + ")");
+            }
+        }
+        resultSet = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+            .executeQuery("select * from Project p join ProjectSkill ps on ps.projectId = p.id order by p.id");
+        compiled = new ProjectRepositoryImpl().compileRowMapper(new ResultColumns(resultSet.getMetaData()));
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROJECTS * SKILLS_PER_PROJECT)
+    public void compiledMapper(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next())
+            blackhole.consume(compiled.map(resultSet));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROJECTS * SKILLS_PER_PROJECT)
+    public void nameBasedMapper(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next())
+            blackhole.consume(mapByName(resultSet));
+    }
+
+    private static Project mapByName(ResultSet resultSet) throws SQLException {
+        List<Skill> skills = Collections.singletonList(
+            new Skill(resultSet.getString("skillName"), resultSet.getInt("point"))
+        );
+        return new Project(
+            resultSet.getString("id"),
+            resultSet.getString("title"),
+            resultSet.getString("description"),
+            resultSet.getString("imageUrl"),
+            resultSet.getInt("budget"),
+            resultSet.getLong("deadline"),
+            resultSet.getLong("creationDate"),
+            skills
+        );
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RowMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+}
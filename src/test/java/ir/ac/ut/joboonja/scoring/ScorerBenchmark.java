@@ -0,0 +1,106 @@
+package ir.ac.ut.joboonja.scoring;
+
+import ir.ac.ut.joboonja.entities.Skill;
+import ir.ac.ut.joboonja.index.SkillDictionary;
+import ir.ac.ut.joboonja.index.SkillVector;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring every bid of one auction: {@link SquaredGapScorer} over skill vectors, with the bidders' vectors
+ * built once as the closing pass does, against the list lookups and {@code Math.pow} it replaced.
+ * Run with {@code mvn test-compile} and then the {@link #main} method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScorerBenchmark {
+    private static final int SKILLS = 200;
+    private static final int REQUIRED_SKILLS = 5;
+    private static final int BIDDER_SKILLS = 15;
+
+    @Param({"100", "10000"})
+    private int bidders;
+
+    private final AuctionScorer scorer = new SquaredGapScorer();
+    private List<Skill> requirements;
+    private List<List<Skill>> bidderSkills;
+    private SkillVector requirementVector;
+    private int[][] bidderVectors;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(bidders);
+        List<String> names = new ArrayList<>();
+        for (int s = 0; s < SKILLS; s++)
+            names.add("benchmark" + s);
+        requirements = pick(names, REQUIRED_SKILLS, random);
+        bidderSkills = new ArrayList<>(bidders);
+        for (int b = 0; b < bidders; b++) {
+            List<Skill> skills = pick(names, BIDDER_SKILLS, random);
+            // most bidders of an auction have what it asks for
+            for (Skill required: requirements)
+                if (random.nextInt(4) != 0 && !skills.contains(required))
+                    skills.add(new Skill(required.getName(), random.nextInt(30)));
+            bidderSkills.add(skills);
+        }
+        requirementVector = SkillVector.of(requirements);
+        bidderVectors = new int[bidders][];
+        for (int b = 0; b < bidders; b++)
+            bidderVectors[b] = SkillDictionary.toVector(bidderSkills.get(b));
+    }
+
+    private static List<Skill> pick(List<String> names, int count, Random random) {
+        List<String> shuffled = new ArrayList<>(names);
+        Collections.shuffle(shuffled, random);
+        List<Skill> skills = new ArrayList<>();
+        for (String name: shuffled.subList(0, count))
+            skills.add(new Skill(name, random.nextInt(30)));
+        return skills;
+    }
+
+    @Benchmark
+    public double listLookups() {
+        double best = 0;
+        for (List<Skill> skills: bidderSkills) {
+            double sum = 0;
+            for (Skill skill: requirements) {
+                int skillIndex = skills.indexOf(skill);
+                if (skillIndex == -1)
+                    continue;
+                sum += 10000 * Math.pow((double) (skills.get(skillIndex).getPoint() - skill.getPoint()), 2);
+            }
+            best = Math.max(best, sum + 1000 - 100);
+        }
+        return best;
+    }
+
+    @Benchmark
+    public double vectors() {
+        double best = 0;
+        for (int[] bidderPoints: bidderVectors)
+            best = Math.max(best, scorer.score(requirementVector, bidderPoints, 1000, 100));
+        return best;
+    }
+
+    @Benchmark
+    public double vectorsIncludingEncoding() {
+        SkillVector requirements = SkillVector.of(this.requirements);
+        double best = 0;
+        for (List<Skill> skills: bidderSkills)
+            best = Math.max(best, scorer.score(requirements, SkillDictionary.toVector(skills), 1000, 100));
+        return best;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ScorerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
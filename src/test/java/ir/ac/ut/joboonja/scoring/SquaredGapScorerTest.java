@@ -0,0 +1,110 @@
+package ir.ac.ut.joboonja.scoring;
+
+import ir.ac.ut.joboonja.entities.Skill;
+import ir.ac.ut.joboonja.index.SkillDictionary;
+import ir.ac.ut.joboonja.index.SkillVector;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Properties of the default formula, checked over random projects and bidders against a plain
+ * implementation over skill lists.
+ */
+public class SquaredGapScorerTest {
+    private static final int CASES = 2000;
+    private static final String[] SKILLS = new String[20];
+
+    static {
+        for (int i = 0; i < SKILLS.length; i++)
+            SKILLS[i] = "scored" + i;
+    }
+
+    private final AuctionScorer scorer = new SquaredGapScorer();
+
+    private static List<Skill> randomSkills(Random random) {
+        List<String> names = new ArrayList<>(Arrays.asList(SKILLS));
+        Collections.shuffle(names, random);
+        List<Skill> skills = new ArrayList<>();
+        for (String name: names.subList(0, random.nextInt(8)))
+            skills.add(new Skill(name, random.nextInt(30)));
+        return skills;
+    }
+
+    /**
+     * {@code sum(10000 * (userPoint - requiredPoint)^2) + budget - bidAmount} over the required skills the
+     * bidder has.
+     */
+    private static double reference(List<Skill> requirements, List<Skill> bidderSkills, int budget, int bidAmount) {
+        double sum = 0;
+        for (Skill required: requirements)
+            for (Skill skill: bidderSkills)
+                if (skill.getName().equals(required.getName()))
+                    sum += 10000 * Math.pow(skill.getPoint() - required.getPoint(), 2);
+        return sum + budget - bidAmount;
+    }
+
+    private double score(List<Skill> requirements, List<Skill> bidderSkills, int budget, int bidAmount) {
+        return scorer.score(SkillVector.of(requirements), SkillDictionary.toVector(bidderSkills), budget, bidAmount);
+    }
+
+    @Test
+    public void matchesTheSummedFormula() {
+        Random random = new Random(23);
+        for (int i = 0; i < CASES; i++) {
+            List<Skill> requirements = randomSkills(random);
+            List<Skill> bidderSkills = randomSkills(random);
+            int budget = random.nextInt(100000);
+            int bidAmount = random.nextInt(budget + 1);
+            assertEquals(reference(requirements, bidderSkills, budget, bidAmount),
+                score(requirements, bidderSkills, budget, bidAmount), 0);
+        }
+    }
+
+    @Test
+    public void everyRequiredSkillCountsNotJustTheLast() {
+        List<Skill> requirements = Arrays.asList(new Skill("scored0", 1), new Skill("scored1", 1));
+        List<Skill> bidderSkills = Arrays.asList(new Skill("scored0", 3), new Skill("scored1", 1));
+        assertEquals(40000 + 100 - 60, score(requirements, bidderSkills, 100, 60), 0);
+    }
+
+    @Test
+    public void requirementOrderDoesNotMatter() {
+        Random random = new Random(42);
+        for (int i = 0; i < CASES; i++) {
+            List<Skill> requirements = randomSkills(random);
+            List<Skill> bidderSkills = randomSkills(random);
+            List<Skill> shuffled = new ArrayList<>(requirements);
+            Collections.shuffle(shuffled, random);
+            assertEquals(score(requirements, bidderSkills, 1000, 10), score(shuffled, bidderSkills, 1000, 10), 0);
+        }
+    }
+
+    @Test
+    public void skillsTheBidderLacksAddNothing() {
+        Random random = new Random(7);
+        for (int i = 0; i < CASES; i++) {
+            List<Skill> requirements = randomSkills(random);
+            List<Skill> bidderSkills = randomSkills(random);
+            List<Skill> required = new ArrayList<>();
+            for (Skill skill: requirements)
+                if (bidderSkills.contains(skill))
+                    required.add(skill);
+            assertEquals(score(required, bidderSkills, 1000, 10), score(requirements, bidderSkills, 1000, 10), 0);
+        }
+    }
+
+    @Test
+    public void eachUnitBidLowerScoresOneHigher() {
+        Random random = new Random(11);
+        for (int i = 0; i < CASES; i++) {
+            List<Skill> requirements = randomSkills(random);
+            List<Skill> bidderSkills = randomSkills(random);
+            int bidAmount = 1 + random.nextInt(1000);
+            assertEquals(score(requirements, bidderSkills, 1000, bidAmount) + 1,
+                score(requirements, bidderSkills, 1000, bidAmount - 1), 0);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ir.ac.ut.joboonja.services;
+
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.entities.User;
+import ir.ac.ut.joboonja.index.EligibilityIndex;
+import ir.ac.ut.joboonja.repositories.impl.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.*;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Archiving on the archive tables as created by {@link ir.ac.ut.joboonja.database.SchemaManager}, and a node
+ * catching up on projects another node archived while it was paused.
+ */
+public class ArchiveServiceTest {
+    private static final String URL = "jdbc:h2:mem:archive;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    static {
+        System.setProperty("joboonja.db.url", URL);
+    }
+
+    @BeforeClass
+    public static void createTables() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "root", "mypassword");
+             Statement statement = connection.createStatement()) {
+            for (String script: new String[]{
+                SkillRepositoryImpl.getCreateScript(), UserRepositoryImpl.getCreateScript(),
+                ProjectRepositoryImpl.getCreateScript(), ProjectRepositoryImpl.getCreateProjectSkillScript(),
+                AuctionRepositoryImpl.getCreateScript(), AuctionRepositoryImpl.getCreateAuctionScript(),
+                ProjectRepositoryImpl.getCreateArchiveScript(), ProjectRepositoryImpl.getCreateProjectSkillArchiveScript(),
+                AuctionRepositoryImpl.getCreateBidArchiveScript(), AuctionRepositoryImpl.getCreateAuctionArchiveScript(),
+                DataVersionRepositoryImpl.getCreateScript(), ClusterRepositoryImpl.getCreateScript(), ClusterRepositoryImpl.getCreateJobLeaseScript()})
+                statement.execute(script);
+            statement.execute("insert into Skill values ('Archive')");
+            statement.execute("insert into User (id, username, password) values (1, 'archive-user1', '')");
+            statement.execute("insert into User (id, username, password) values (2, 'archive-user2', '')");
+            // archived before the node started
+            statement.execute("insert into ProjectArchive (id, archivedAt) values ('ancient', 1000)");
+        }
+    }
+
+    private static void execute(String sql) {
+        try (Connection connection = DriverManager.getConnection(URL, "root", "mypassword");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static long count(String sql) {
+        try (Connection connection = DriverManager.getConnection(URL, "root", "mypassword");
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void project(String id, long deadline, Integer winnerId) {
+        execute("insert into Project (id, title, budget, deadline, creationDate) values ('" + id + "', 'title', 1000, " + deadline + ", 0)");
+        execute("insert into ProjectSkill values ('" + id + "', 'Archive', 5)");
+        execute("insert into Bid values ('" + id + "', 1, 100)");
+        execute("insert into Bid values ('" + id + "', 2, 200)");
+        if (winnerId != null)
+            execute("insert into Auction values ('" + id + "', " + winnerId + ")");
+    }
+
+    @Test
+    public void decidedProjectsPastRetentionMoveToTheArchive() {
+        project("archived-won", 0, 2);
+        project("archived-open", Long.MAX_VALUE, null);
+        execute("insert into DataVersion values ('bids:archived-won', 2, 0)");
+        execute("insert into DataVersion values ('bids:archived-open', 2, 0)");
+        ProjectService.loadProjectIndexes();
+        assertTrue(EligibilityIndex.contains("archived-won"));
+
+        ArchiveService.archive();
+
+        assertEquals(0, count("select count(*) from Project where id = 'archived-won'"));
+        assertEquals(0, count("select count(*) from Bid where projectId = 'archived-won'"));
+        assertEquals(2, count("select count(*) from BidArchive where projectId = 'archived-won'"));
+        assertEquals(1, count("select count(*) from Project where id = 'archived-open'"));
+        assertEquals(0, count("select count(*) from DataVersion where dataSet = 'bids:archived-won'"));
+        assertEquals(1, count("select count(*) from DataVersion where dataSet = 'bids:archived-open'"));
+        assertFalse(EligibilityIndex.contains("archived-won"));
+        assertTrue(EligibilityIndex.contains("archived-open"));
+
+        User winner = new User(2, "archive-user2", "first", "last", "title", "bio", new LinkedList<>());
+        List<Project> wins = ProjectService.getPastWins(winner);
+        assertEquals(1, wins.size());
+        assertEquals("archived-won", wins.get(0).getId());
+        assertEquals("Archive", wins.get(0).getSkills().get(0).getName());
+    }
+
+    @Test
+    public void projectsArchivedByAnotherNodeWhileThisOneWasPausedAreDropped() {
+        project("paused", Long.MAX_VALUE, 1);
+        ProjectService.loadProjectIndexes();
+        assertTrue(EligibilityIndex.contains("paused"));
+        ProjectService.removeRecentlyArchivedProjects();
+
+        // another node archives it; by the time this node looks again, that was hours ago
+        execute("insert into ProjectArchive (id, archivedAt) values ('paused', " + (System.currentTimeMillis() - 6 * 60 * 60 * 1000) + ")");
+        execute("delete from Auction where projectId = 'paused'");
+        execute("delete from Bid where projectId = 'paused'");
+        execute("delete from ProjectSkill where projectId = 'paused'");
+        execute("delete from Project where id = 'paused'");
+        assertTrue(EligibilityIndex.contains("paused"));
+
+        ProjectService.removeRecentlyArchivedProjects();
+        assertFalse(EligibilityIndex.contains("paused"));
+    }
+}
@@ -0,0 +1,158 @@
+package ir.ac.ut.joboonja.services;
+
+import ir.ac.ut.joboonja.database.QueryStats;
+import ir.ac.ut.joboonja.entities.Auction;
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.entities.Skill;
+import ir.ac.ut.joboonja.entities.User;
+import ir.ac.ut.joboonja.index.BidLeaderboard;
+import ir.ac.ut.joboonja.repositories.impl.*;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Auctions closed through {@link AuctionService#closeAuctions} by one node owning every partition, from bids
+ * placed through {@link AuctionService#bidProject}.
+ */
+public class AuctionSchedulerTest {
+    private static final String URL = "jdbc:h2:mem:auctionScheduler;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+    private static final long CLOSE_DELAY_MILLIS = 200;
+
+    static {
+        System.setProperty("joboonja.db.url", URL);
+        System.setProperty("joboonja.auction.closeDelayMillis", String.valueOf(CLOSE_DELAY_MILLIS));
+    }
+
+    private static final AuctionRepositoryImpl auctionRepository = new AuctionRepositoryImpl();
+    private static ClusterNode node;
+
+    @BeforeClass
+    public static void createTables() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "root", "mypassword");
+             Statement statement = connection.createStatement()) {
+            for (String script: new String[]{
+                SkillRepositoryImpl.getCreateScript(), UserRepositoryImpl.getCreateScript(), UserRepositoryImpl.getCreateUserSkillScript(),
+                ProjectRepositoryImpl.getCreateScript(), ProjectRepositoryImpl.getCreateProjectSkillScript(),
+                AuctionRepositoryImpl.getCreateScript(), AuctionRepositoryImpl.getCreateAuctionScript(),
+                DataVersionRepositoryImpl.getCreateScript(), ClusterRepositoryImpl.getCreateScript(), ClusterRepositoryImpl.getCreateJobLeaseScript()})
+                statement.execute(script);
+            statement.execute("insert into Skill values ('Closing')");
+            for (int userId = 1; userId <= 4; userId++)
+                statement.execute("insert into User (id, username, password) values (" + userId + ", 'closer" + userId + "', '')");
+        }
+        node = new ClusterNode("scheduler");
+        node.start();
+        node.beat();
+    }
+
+    @AfterClass
+    public static void stopNode() {
+        AuctionScheduler.stop();
+        node.stop();
+    }
+
+    private static void execute(String sql) {
+        try (Connection connection = DriverManager.getConnection(URL, "root", "mypassword");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static Project project(String id, long deadline) {
+        execute("insert into Project (id, budget, deadline, creationDate) values ('" + id + "', 1000, " + deadline + ", 0)");
+        execute("insert into ProjectSkill values ('" + id + "', 'Closing', 5)");
+        Project project = new Project(id, "title", "description", null, 1000, deadline, 0L,
+            new ArrayList<>(Collections.singletonList(new Skill("Closing", 5))));
+        AuctionService.scheduleAuctions(Collections.singletonList(project));
+        return project;
+    }
+
+    private static User bidder(int userId, int points) {
+        LinkedList<Skill> skills = new LinkedList<>(Collections.singletonList(new Skill("Closing", points)));
+        return new User(userId, "closer" + userId, "first", "last", "title", "bio", skills);
+    }
+
+    private static Integer winner(Project project) {
+        Auction auction = auctionRepository.getAuctionWinner(project);
+        return auction == null ? null : auction.getWinnerId();
+    }
+
+    private static long auctionWrites() {
+        long executions = 0;
+        for (QueryStats stats: QueryStats.getAll())
+            if (stats.getName().startsWith("auction.insertBatch"))
+                executions += stats.getExecutions();
+        return executions;
+    }
+
+    @Test
+    public void theSchedulerClosesAnAuctionOnceItsDeadlineHasPassed() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        Project project = project("due", deadline);
+        AuctionService.bidProject(project, 100, bidder(1, 6));
+        AuctionService.bidProject(project, 100, bidder(2, 9));
+        AuctionScheduler.start(projectIds -> AuctionService.closeAuctions(node, projectIds));
+
+        while (winner(project) == null && System.currentTimeMillis() < deadline + 10000)
+            Thread.sleep(20);
+        assertTrue(System.currentTimeMillis() >= deadline + CLOSE_DELAY_MILLIS);
+        assertEquals(Integer.valueOf(2), winner(project));
+        assertFalse(AuctionScheduler.isScheduled(project.getId()));
+        assertEquals(0, BidLeaderboard.size(project.getId()));
+    }
+
+    @Test
+    public void equalScoresGoToTheLowestUserId() {
+        Project project = project("tied", Long.MAX_VALUE);
+        for (int userId: new int[]{4, 2, 3})
+            AuctionService.bidProject(project, 100, bidder(userId, 7));
+
+        assertEquals(Collections.emptyList(), AuctionService.closeAuctions(node, Collections.singletonList(project.getId())));
+        assertEquals(Integer.valueOf(2), winner(project));
+    }
+
+    /**
+     * One of the batch was decided by another node a moment ago: its stored winner stays, the rest are decided
+     * from their leaderboards with a single write, and every board is dropped.
+     */
+    @Test
+    public void aBatchKeepsTheWinnerAnotherNodeStored() {
+        List<Project> projects = new ArrayList<>();
+        List<String> projectIds = new ArrayList<>();
+        for (String id: new String[]{"batch-a", "batch-b", "batch-c"}) {
+            Project project = project(id, Long.MAX_VALUE);
+            AuctionService.bidProject(project, 100, bidder(1, 6));
+            AuctionService.bidProject(project, 100, bidder(3, 9));
+            projects.add(project);
+            projectIds.add(id);
+        }
+        Project empty = project("batch-empty", Long.MAX_VALUE);
+        projects.add(empty);
+        projectIds.add(empty.getId());
+        execute("insert into Auction values ('batch-b', 1)");
+
+        long writes = auctionWrites();
+        assertEquals(Collections.emptyList(), AuctionService.closeAuctions(node, projectIds));
+        assertEquals(writes + 1, auctionWrites());
+
+        assertEquals(Integer.valueOf(3), winner(projects.get(0)));
+        assertEquals(Integer.valueOf(1), winner(projects.get(1)));
+        assertEquals(Integer.valueOf(3), winner(projects.get(2)));
+        assertNotNull(auctionRepository.getAuctionWinner(empty));
+        for (String projectId: projectIds) {
+            assertEquals(0, BidLeaderboard.size(projectId));
+            assertFalse(AuctionScheduler.isScheduled(projectId));
+        }
+    }
+}
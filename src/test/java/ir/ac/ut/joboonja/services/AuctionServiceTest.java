@@ -0,0 +1,119 @@
+package ir.ac.ut.joboonja.services;
+
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.entities.User;
+import ir.ac.ut.joboonja.exceptions.BadRequestException;
+import ir.ac.ut.joboonja.index.BidLeaderboard;
+import ir.ac.ut.joboonja.repositories.impl.AuctionRepositoryImpl;
+import ir.ac.ut.joboonja.repositories.impl.DataVersionRepositoryImpl;
+import ir.ac.ut.joboonja.repositories.impl.ProjectRepositoryImpl;
+import ir.ac.ut.joboonja.repositories.impl.UserRepositoryImpl;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AuctionServiceTest {
+
+    private static final String URL = "jdbc:h2:mem:auctionService;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+    private static final int BIDDERS = 4;
+
+    static {
+        System.setProperty("joboonja.db.url", URL);
+    }
+
+    @BeforeClass
+    public static void createTables() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "root", "mypassword");
+             Statement statement = connection.createStatement()) {
+            statement.execute(UserRepositoryImpl.getCreateScript());
+            statement.execute(ProjectRepositoryImpl.getCreateScript());
+            statement.execute(AuctionRepositoryImpl.getCreateScript());
+            statement.execute(DataVersionRepositoryImpl.getCreateScript());
+            for (int userId = 1; userId <= BIDDERS; userId++)
+                statement.execute("insert into User (id, username, password) values (" + userId + ", 'bidder" + userId + "', '')");
+            statement.execute("insert into Project (id, budget, deadline, creationDate) values ('raced', 1000, " + Long.MAX_VALUE + ", 0)");
+        }
+    }
+
+    /**
+     * Every bidder fires the same bid from several threads at once; the Bid primary key lets exactly one through.
+     */
+    @Test
+    public void parallelDuplicateBidsInsertOneBidPerUser() throws InterruptedException {
+        Project project = new Project("raced", "title", "description", null, 1000, Long.MAX_VALUE, 0L, new ArrayList<>());
+        int attempts = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(BIDDERS * attempts);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        for (int userId = 1; userId <= BIDDERS; userId++) {
+            User user = new User(userId, "bidder" + userId, "first", "last", "title", "bio", new LinkedList<>());
+            for (int i = 0; i < attempts; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        AuctionService.bidProject(project, 500, user);
+                        accepted.incrementAndGet();
+                    } catch (BadRequestException e) {
+                        if ("User has already bidded!".equals(e.getMessage()))
+                            rejected.incrementAndGet();
+                        else
+                            failures.add(e);
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                });
+            }
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(Collections.emptyList(), failures);
+        assertEquals(BIDDERS, accepted.get());
+        assertEquals(BIDDERS * (attempts - 1), rejected.get());
+        assertEquals(BIDDERS, new AuctionRepositoryImpl().getAuction("raced").getOffers().size());
+    }
+
+    @Test
+    public void equalScoresLeadByTheLowestUserIdWhateverTheBidOrder() {
+        List<Integer> userIds = Arrays.asList(7, 3, 9, 5);
+        for (int i = 0; i < 10; i++) {
+            String projectId = "tied" + i;
+            Collections.shuffle(userIds, new Random(i));
+            for (int userId: userIds)
+                BidLeaderboard.add(projectId, userId, 400, 1000);
+            assertEquals(Integer.valueOf(3), BidLeaderboard.leader(projectId));
+            assertEquals(4, BidLeaderboard.rank(projectId, 9));
+            BidLeaderboard.remove(projectId);
+        }
+    }
+
+    @Test
+    public void aRescoredBidMovesOnTheBoard() {
+        BidLeaderboard.add("rescored", 1, 300, 10);
+        BidLeaderboard.add("rescored", 2, 200, 20);
+        BidLeaderboard.add("rescored", 3, 100, 15);
+        assertEquals(Integer.valueOf(2), BidLeaderboard.leader("rescored"));
+
+        BidLeaderboard.rescore("rescored", 1, 30);
+        assertEquals(Integer.valueOf(1), BidLeaderboard.leader("rescored"));
+        assertEquals(2, BidLeaderboard.rank("rescored", 2));
+        assertEquals(3, BidLeaderboard.rank("rescored", 3));
+        assertEquals(3, BidLeaderboard.size("rescored"));
+        assertEquals(Collections.singletonMap("rescored", 300), BidLeaderboard.bidsOf(1));
+
+        BidLeaderboard.remove("rescored");
+        assertEquals(Collections.emptyMap(), BidLeaderboard.bidsOf(1));
+    }
+}
@@ -0,0 +1,76 @@
+package ir.ac.ut.joboonja.services;
+
+import ir.ac.ut.joboonja.entities.Bid;
+import ir.ac.ut.joboonja.repositories.impl.AuctionRepositoryImpl;
+import ir.ac.ut.joboonja.repositories.impl.DataVersionRepositoryImpl;
+import ir.ac.ut.joboonja.repositories.impl.ProjectRepositoryImpl;
+import ir.ac.ut.joboonja.repositories.impl.UserRepositoryImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bids per second from 64 concurrent callers: {@link BidPipeline} against one insert (and commit) per request,
+ * on a file-backed H2 whose Bid foreign keys are dropped so that every call can bid as a new user. H2 doesn't
+ * sync the disk on commit, so this measures the pipeline's overhead rather than what it saves on MySQL.
+ * Run with {@code mvn test-compile} and then the {@link #main} method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class BidPipelineBenchmark {
+    private static final String URL = "jdbc:h2:file:./target/bidPipelineBenchmark;MODE=MySQL;NON_KEYWORDS=USER";
+
+    static {
+        System.setProperty("joboonja.db.url", URL);
+    }
+
+    @Param({"pipeline", "direct"})
+    private String mode;
+
+    private final AuctionRepositoryImpl auctionRepository = new AuctionRepositoryImpl();
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Setup
+    public void setUp() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "root", "mypassword");
+             Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists Bid");
+            statement.execute(UserRepositoryImpl.getCreateScript());
+            statement.execute(ProjectRepositoryImpl.getCreateScript());
+            statement.execute(AuctionRepositoryImpl.getCreateScript());
+            statement.execute(DataVersionRepositoryImpl.getCreateScript());
+            statement.execute("alter table Bid drop constraint Bid_Project_id_fk");
+            statement.execute("alter table Bid drop constraint Bid_User_id_fk");
+        }
+        if (mode.equals("pipeline"))
+            BidPipeline.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        BidPipeline.stop();
+    }
+
+    @Benchmark
+    public boolean bid() {
+        Bid bid = new Bid(next.incrementAndGet(), "project", 100);
+        return mode.equals("pipeline") ? BidPipeline.insertBid(bid, Long.MAX_VALUE) : auctionRepository.insertBid(bid);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BidPipelineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
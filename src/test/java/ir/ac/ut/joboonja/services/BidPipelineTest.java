@@ -0,0 +1,156 @@
+package ir.ac.ut.joboonja.services;
+
+import ir.ac.ut.joboonja.entities.Auction;
+import ir.ac.ut.joboonja.entities.Bid;
+import ir.ac.ut.joboonja.exceptions.BadRequestException;
+import ir.ac.ut.joboonja.repositories.impl.AuctionRepositoryImpl;
+import ir.ac.ut.joboonja.repositories.impl.DataVersionRepositoryImpl;
+import ir.ac.ut.joboonja.repositories.impl.ProjectRepositoryImpl;
+import ir.ac.ut.joboonja.repositories.impl.UserRepositoryImpl;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BidPipelineTest {
+    private static final String URL = "jdbc:h2:mem:bidPipeline;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+    private static final int USERS = 500;
+
+    static {
+        System.setProperty("joboonja.db.url", URL);
+        System.setProperty("joboonja.bids.waitMillis", "5000");
+    }
+
+    @BeforeClass
+    public static void createTables() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "root", "mypassword");
+             Statement statement = connection.createStatement()) {
+            statement.execute(UserRepositoryImpl.getCreateScript());
+            statement.execute(ProjectRepositoryImpl.getCreateScript());
+            statement.execute(AuctionRepositoryImpl.getCreateScript());
+            statement.execute(DataVersionRepositoryImpl.getCreateScript());
+            for (int userId = 1; userId <= USERS; userId++)
+                statement.execute("insert into User (id, username, password) values (" + userId + ", 'user" + userId + "', '')");
+            for (String projectId: new String[]{"batched", "stopped", "constrained", "late"})
+                statement.execute("insert into Project (id, budget, deadline, creationDate) values ('" + projectId + "', 1000, 0, 0)");
+        }
+    }
+
+    private static int storedBids(String projectId) {
+        Auction auction = new AuctionRepositoryImpl().getAuction(projectId);
+        return auction == null ? 0 : auction.getOffers().size();
+    }
+
+    @Test
+    public void concurrentCallersEachGetTheirOwnResult() throws Exception {
+        BidPipeline.start();
+        try {
+            ExecutorService executor = Executors.newFixedThreadPool(64);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int attempt = 0; attempt < 3; attempt++)
+                for (int userId = 1; userId <= USERS; userId++) {
+                    Bid bid = new Bid(userId, "batched", 100);
+                    results.add(executor.submit(() -> BidPipeline.insertBid(bid, Long.MAX_VALUE)));
+                }
+            int inserted = 0;
+            for (Future<Boolean> result: results)
+                inserted += result.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            executor.shutdown();
+
+            assertEquals(USERS, inserted);
+            assertEquals(USERS, storedBids("batched"));
+        } finally {
+            BidPipeline.stop();
+        }
+    }
+
+    /**
+     * Bids keep arriving while the pipeline stops: none may be left waiting, and every bid reported as
+     * inserted must be stored.
+     */
+    @Test
+    public void stoppingUnderLoadLeavesNoCallerWaiting() throws Exception {
+        BidPipeline.start();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        AtomicInteger next = new AtomicInteger(1);
+        AtomicInteger inserted = new AtomicInteger();
+        List<Future<?>> callers = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            callers.add(executor.submit(() -> {
+                for (int userId = next.getAndIncrement(); userId <= USERS; userId = next.getAndIncrement()) {
+                    try {
+                        if (BidPipeline.insertBid(new Bid(userId, "stopped", 100), Long.MAX_VALUE))
+                            inserted.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        assertEquals("bid pipeline stopped", e.getMessage());
+                    }
+                    Thread.yield();
+                }
+            }));
+        }
+        Thread.sleep(5);
+        BidPipeline.stop();
+        for (Future<?> caller: callers)
+            caller.get(2, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(inserted.get(), storedBids("stopped"));
+    }
+
+    /**
+     * A bid on a missing project fails the batch's insert; it must reach its caller as an error, not as a
+     * duplicate, while the other bids of the batch are stored.
+     */
+    @Test
+    public void aConstraintFailureReachesOnlyItsCaller() throws Exception {
+        BidPipeline.start();
+        try {
+            ExecutorService executor = Executors.newFixedThreadPool(32);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int userId = 1; userId <= 50; userId++) {
+                Bid bid = new Bid(userId, userId == 25 ? "missing" : "constrained", 100);
+                results.add(executor.submit(() -> BidPipeline.insertBid(bid, Long.MAX_VALUE)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                if (i == 24) {
+                    try {
+                        results.get(i).get(10, TimeUnit.SECONDS);
+                        fail("a bid on a missing project was accepted");
+                    } catch (ExecutionException e) {
+                        assertTrue(e.getCause() instanceof BadRequestException);
+                        assertTrue(e.getCause().getMessage().startsWith("Something is wrong in db"));
+                    }
+                } else {
+                    assertTrue(results.get(i).get(10, TimeUnit.SECONDS));
+                }
+            }
+            executor.shutdown();
+
+            assertEquals(49, storedBids("constrained"));
+        } finally {
+            BidPipeline.stop();
+        }
+    }
+
+    @Test
+    public void bidsFlushedAfterTheDeadlineFail() {
+        BidPipeline.start();
+        try {
+            BidPipeline.insertBid(new Bid(1, "late", 100), System.currentTimeMillis() - 1);
+            fail("a late bid was accepted");
+        } catch (BadRequestException e) {
+            assertEquals("Project deadline has been passed!", e.getMessage());
+        } finally {
+            BidPipeline.stop();
+        }
+        assertEquals(0, storedBids("late"));
+    }
+}
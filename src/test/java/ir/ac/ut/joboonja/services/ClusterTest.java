@@ -0,0 +1,319 @@
+package ir.ac.ut.joboonja.services;
+
+import ir.ac.ut.joboonja.database.DataVersions;
+import ir.ac.ut.joboonja.database.QueryStats;
+import ir.ac.ut.joboonja.database.UnitOfWork;
+import ir.ac.ut.joboonja.entities.Auction;
+import ir.ac.ut.joboonja.entities.Bid;
+import ir.ac.ut.joboonja.entities.Project;
+import ir.ac.ut.joboonja.entities.Skill;
+import ir.ac.ut.joboonja.entities.User;
+import ir.ac.ut.joboonja.events.EventHub;
+import ir.ac.ut.joboonja.index.BidLeaderboard;
+import ir.ac.ut.joboonja.index.EligibilityIndex;
+import ir.ac.ut.joboonja.models.ProjectEvent;
+import ir.ac.ut.joboonja.repositories.impl.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Several nodes in one process sharing one database, each a {@link ClusterNode} with its own id. The
+ * process-wide state (indexes, leaderboards) stands in for the node being tested, and rows written straight
+ * to the database for what another node did.
+ */
+public class ClusterTest {
+    private static final String URL = "jdbc:h2:mem:cluster;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    static {
+        System.setProperty("joboonja.db.url", URL);
+    }
+
+    private final AuctionRepositoryImpl auctionRepository = new AuctionRepositoryImpl();
+
+    @BeforeClass
+    public static void createTables() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "root", "mypassword");
+             Statement statement = connection.createStatement()) {
+            for (String script: new String[]{
+                SkillRepositoryImpl.getCreateScript(), UserRepositoryImpl.getCreateScript(), UserRepositoryImpl.getCreateUserSkillScript(),
+                ProjectRepositoryImpl.getCreateScript(), ProjectRepositoryImpl.getCreateProjectSkillScript(),
+                AuctionRepositoryImpl.getCreateScript(), AuctionRepositoryImpl.getCreateAuctionScript(),
+                ProjectRepositoryImpl.getCreateArchiveScript(),
+                DataVersionRepositoryImpl.getCreateScript(), ClusterRepositoryImpl.getCreateScript(), ClusterRepositoryImpl.getCreateJobLeaseScript()})
+                statement.execute(script);
+            statement.execute("insert into Skill values ('Cluster')");
+            for (int userId = 1; userId <= 5; userId++)
+                statement.execute("insert into User (id, username, password) values (" + userId + ", 'node-user" + userId + "', '')");
+            statement.execute("insert into UserSkill values (1, 'Cluster', 5)");
+            statement.execute("insert into UserSkill values (2, 'Cluster', 9)");
+            statement.execute("insert into UserSkill values (4, 'Cluster', 5)");
+            statement.execute("insert into UserSkill values (5, 'Cluster', 9)");
+        }
+    }
+
+    private static void execute(String sql) {
+        try (Connection connection = DriverManager.getConnection(URL, "root", "mypassword");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static Project project(String id, long deadline) {
+        execute("insert into Project (id, budget, deadline, creationDate) values ('" + id + "', 1000, " + deadline + ", 0)");
+        execute("insert into ProjectSkill values ('" + id + "', 'Cluster', 5)");
+        return new Project(id, "title", "description", null, 1000, deadline, 0L, new ArrayList<>(Collections.singletonList(new Skill("Cluster", 5))));
+    }
+
+    private static List<ClusterNode> startNodes(String... ids) {
+        List<ClusterNode> nodes = new ArrayList<>();
+        for (String id: ids) {
+            ClusterNode node = new ClusterNode(id);
+            node.start();
+            nodes.add(node);
+        }
+        for (ClusterNode node: nodes)
+            node.beat();
+        return nodes;
+    }
+
+    private static void stopNodes(List<ClusterNode> nodes) {
+        for (ClusterNode node: nodes)
+            node.stop();
+    }
+
+    /**
+     * The data of every event sent to {@code emitter}, captured by the handler a container would attach.
+     */
+    private static BlockingQueue<Object> sent(SseEmitter emitter) throws Exception {
+        BlockingQueue<Object> sent = new LinkedBlockingQueue<>();
+        Class<?> handler = Class.forName(ResponseBodyEmitter.class.getName() + "$Handler");
+        Object proxy = Proxy.newProxyInstance(handler.getClassLoader(), new Class[]{handler}, (instance, method, args) -> {
+            if (method.getName().equals("send"))
+                sent.add(args[0]);
+            return null;
+        });
+        Method initialize = ResponseBodyEmitter.class.getDeclaredMethod("initialize", handler);
+        initialize.setAccessible(true);
+        initialize.invoke(emitter, proxy);
+        return sent;
+    }
+
+    @Test
+    public void partitionsCoverEveryKeyOnceAndMoveWhenANodeLeaves() {
+        List<ClusterNode> nodes = startNodes("a", "b", "c");
+        try {
+            for (ClusterNode node: nodes)
+                assertEquals(Arrays.asList("a", "b", "c"), node.getLiveNodes());
+            Map<String, Integer> owned = new HashMap<>();
+            for (int key = 0; key < 300; key++) {
+                int owners = 0;
+                for (ClusterNode node: nodes)
+                    if (node.owns("project" + key)) {
+                        owners++;
+                        owned.merge(node.getId(), 1, Integer::sum);
+                    }
+                assertEquals(1, owners);
+            }
+            assertEquals(3, owned.size());
+
+            nodes.get(2).stop();
+            nodes.get(0).beat();
+            nodes.get(1).beat();
+            for (int key = 0; key < 300; key++)
+                assertTrue(nodes.get(0).owns("project" + key) ^ nodes.get(1).owns("project" + key));
+        } finally {
+            stopNodes(nodes);
+        }
+    }
+
+    @Test
+    public void aLeaseHasOneHolderUntilReleased() {
+        List<ClusterNode> nodes = startNodes("lease-a", "lease-b");
+        try {
+            assertTrue(nodes.get(0).acquireLease("job"));
+            assertFalse(nodes.get(1).acquireLease("job"));
+            assertTrue(nodes.get(0).acquireLease("job"));
+            nodes.get(0).releaseLease("job");
+            assertTrue(nodes.get(1).acquireLease("job"));
+        } finally {
+            stopNodes(nodes);
+        }
+    }
+
+    @Test
+    public void onlyTheOwnerDecidesAnAuctionAndTheOthersDropItOnceDecided() {
+        List<ClusterNode> nodes = startNodes("close-a", "close-b");
+        try {
+            Project project = project("closing", 0);
+            String projectId = project.getId();
+            AuctionService.scheduleAuctions(Collections.singletonList(project));
+            auctionRepository.insertBid(new Bid(1, projectId, 100));
+            auctionRepository.insertBid(new Bid(2, projectId, 100));
+            ClusterNode owner = nodes.get(0).owns(projectId) ? nodes.get(0) : nodes.get(1);
+            ClusterNode other = owner == nodes.get(0) ? nodes.get(1) : nodes.get(0);
+
+            assertEquals(Collections.singletonList(projectId), AuctionService.closeAuctions(other, Collections.singletonList(projectId)));
+            assertNull(auctionRepository.getAuctionWinner(project));
+
+            assertEquals(Collections.emptyList(), AuctionService.closeAuctions(owner, Collections.singletonList(projectId)));
+            Auction decided = auctionRepository.getAuctionWinner(project);
+            assertEquals(Integer.valueOf(2), decided.getWinnerId());
+
+            assertEquals(Collections.emptyList(), AuctionService.closeAuctions(other, Collections.singletonList(projectId)));
+        } finally {
+            stopNodes(nodes);
+        }
+    }
+
+    @Test
+    public void theStoredWinnerIsPublishedWhenAnotherNodeDecidedFirst() throws Exception {
+        List<ClusterNode> nodes = startNodes("race-a");
+        try {
+            Project project = project("raced-close", 0);
+            String projectId = project.getId();
+            AuctionService.scheduleAuctions(Collections.singletonList(project));
+            auctionRepository.insertBid(new Bid(1, projectId, 100));
+            auctionRepository.insertBid(new Bid(2, projectId, 100));
+            // a node that owned the partition a moment ago stored its result first
+            execute("insert into Auction values ('" + projectId + "', 1)");
+            SseEmitter emitter = EventHub.subscribe(Collections.singletonList(EventHub.projectTopic(projectId)));
+            BlockingQueue<Object> sent = sent(emitter);
+
+            assertEquals(Collections.emptyList(), AuctionService.closeAuctions(nodes.get(0), Collections.singletonList(projectId)));
+            assertEquals(Integer.valueOf(1), auctionRepository.getAuctionWinner(project).getWinnerId());
+            Object data;
+            do {
+                data = sent.poll(5, TimeUnit.SECONDS);
+                assertNotNull("no result was published", data);
+            } while (!(data instanceof ProjectEvent));
+            assertEquals(Integer.valueOf(1), ((ProjectEvent) data).getWinnerId());
+            emitter.complete();
+        } finally {
+            stopNodes(nodes);
+        }
+    }
+
+    @Test
+    public void projectsSyncedByAnotherNodeAreIndexed() {
+        ProjectService.loadProjectIndexes();
+        project("synced-elsewhere", Long.MAX_VALUE);
+        assertFalse(EligibilityIndex.contains("synced-elsewhere"));
+
+        List<Project> refreshed = ProjectService.refreshProjectIndexes();
+        assertEquals(1, refreshed.size());
+        assertEquals("synced-elsewhere", refreshed.get(0).getId());
+        assertTrue(EligibilityIndex.contains("synced-elsewhere"));
+        assertEquals(Collections.emptyList(), ProjectService.refreshProjectIndexes());
+    }
+
+    private static long queriesRun() {
+        long executions = 0;
+        for (QueryStats stats: QueryStats.getAll())
+            executions += stats.getExecutions();
+        return executions;
+    }
+
+    @Test
+    public void tagsComeFromMemoryAndFollowOtherNodesOnThePoll() {
+        DataVersions.Tag first = DataVersions.tag(DataVersions.SKILLS, DataVersions.user(2));
+        long queries = queriesRun();
+        assertEquals(first.getEtag(), DataVersions.tag(DataVersions.SKILLS, DataVersions.user(2)).getEtag());
+        assertEquals(queries, queriesRun());
+
+        // another node's bump, straight to the database
+        new DataVersionRepositoryImpl().bump(DataVersions.SKILLS);
+        assertEquals(first.getEtag(), DataVersions.tag(DataVersions.SKILLS, DataVersions.user(2)).getEtag());
+        ChangeListener.poll();
+        assertNotEquals(first.getEtag(), DataVersions.tag(DataVersions.SKILLS, DataVersions.user(2)).getEtag());
+
+        // this node's own bumps show once they commit
+        DataVersions.Tag polled = DataVersions.tag(DataVersions.user(2));
+        DataVersions.bumpUser(2);
+        assertNotEquals(polled.getEtag(), DataVersions.tag(DataVersions.user(2)).getEtag());
+    }
+
+    @Test
+    public void tagsAndSkillIndexFollowChangesMadeByAnotherNode() {
+        DataVersions.Tag before = DataVersions.tag(DataVersions.user(3));
+        UserService.loadSkillIndex();
+        List<Skill> requirement = Collections.singletonList(new Skill("Cluster", 7));
+        assertFalse(UserService.getEligibleUserIds(requirement).contains(3));
+
+        // what another node's endorsement writes
+        execute("insert into UserSkill values (3, 'Cluster', 8)");
+        DataVersions.bumpUser(3);
+
+        assertNotEquals(before.getEtag(), DataVersions.tag(DataVersions.user(3)).getEtag());
+        ChangeListener.poll();
+        assertTrue(UserService.getEligibleUserIds(requirement).contains(3));
+    }
+
+    @Test
+    public void bidsPlacedOnAnotherNodeAreRanked() {
+        Project project = project("ranked", Long.MAX_VALUE);
+        User bidder = new User(1, "node-user1", "first", "last", "title", "bio", new LinkedList<>());
+        auctionRepository.insertBid(new Bid(1, project.getId(), 100));
+
+        assertEquals(1, AuctionService.getBidRank(project, bidder).getRank());
+
+        auctionRepository.insertBid(new Bid(2, project.getId(), 100));
+        ChangeListener.poll();
+        assertEquals(2, BidLeaderboard.size(project.getId()));
+        assertEquals(2, AuctionService.getBidRank(project, bidder).getRank());
+    }
+
+    private static User bidder(int userId, int points) {
+        LinkedList<Skill> skills = new LinkedList<>(Collections.singletonList(new Skill("Cluster", points)));
+        return new User(userId, "node-user" + userId, "first", "last", "title", "bio", skills);
+    }
+
+    /**
+     * An endorsement moves the endorsed bidder on the open boards; the rank endpoint, the outbid event and the
+     * closing pass all see the same order.
+     */
+    @Test
+    public void endorsedBiddersAreRescoredAndTheLeaderWins() throws Exception {
+        List<ClusterNode> nodes = startNodes("rescore-a");
+        try {
+            Project project = project("rescored", Long.MAX_VALUE);
+            User endorsed = bidder(4, 5);
+            AuctionService.bidProject(project, 100, endorsed);
+            AuctionService.bidProject(project, 100, bidder(5, 9));
+            assertEquals(2, AuctionService.getBidRank(project, endorsed).getRank());
+
+            SseEmitter emitter = EventHub.subscribe(Collections.singletonList(EventHub.userTopic(5)));
+            BlockingQueue<Object> sent = sent(emitter);
+            UnitOfWork.execute(() -> UserService.updateUserSkillPoint(4, "Cluster", 10));
+            assertEquals(1, AuctionService.getBidRank(project, endorsed).getRank());
+            Object data;
+            do {
+                data = sent.poll(5, TimeUnit.SECONDS);
+                assertNotNull("the previous leader wasn't told", data);
+            } while (!(data instanceof ProjectEvent));
+            emitter.complete();
+
+            assertEquals(Collections.emptyList(), AuctionService.closeAuctions(nodes.get(0), Collections.singletonList(project.getId())));
+            assertEquals(Integer.valueOf(4), auctionRepository.getAuctionWinner(project).getWinnerId());
+            assertEquals(0, BidLeaderboard.size(project.getId()));
+        } finally {
+            stopNodes(nodes);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ir.ac.ut.joboonja.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProjectServiceTest {
+
+    private static final List<Integer> ITEMS = Arrays.asList(0, 1, 2, 3, 4, 5, 6);
+
+    @Test
+    public void legacyPagesSplitTheList() {
+        List<Integer> paged = new ArrayList<>();
+        for (int pageNumber = 0; pageNumber < 3; pageNumber++)
+            paged.addAll(ProjectService.page(ITEMS, pageNumber, 3));
+        assertEquals(ITEMS, paged);
+        assertEquals(ITEMS, ProjectService.page(ITEMS, 0, 1000));
+    }
+
+    @Test
+    public void outOfRangePagesAreEmpty() {
+        assertEquals(Collections.emptyList(), ProjectService.page(ITEMS, 3, 3));
+        assertEquals(Collections.emptyList(), ProjectService.page(ITEMS, Integer.MAX_VALUE, Integer.MAX_VALUE));
+        assertEquals(Collections.emptyList(), ProjectService.page(ITEMS, 2, Integer.MAX_VALUE));
+        assertEquals(Collections.emptyList(), ProjectService.page(ITEMS, 0, -5));
+        assertEquals(Arrays.asList(0, 1), ProjectService.page(ITEMS, -1, 2));
+    }
+}
@@ -0,0 +1,150 @@
+package ir.ac.ut.joboonja.utilities;
+
+import ir.ac.ut.joboonja.entities.Skill;
+import org.junit.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class JsonStreamWriterTest {
+
+    /**
+     * A response that buffers like a container: the first {@code BUFFER_SIZE} bytes are held and can be
+     * reset, after that the response is committed and only its last bytes are kept.
+     */
+    private static class Response extends ServletOutputStream {
+        private static final int BUFFER_SIZE = 8192;
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final byte[] tail = new byte[16];
+        private boolean committed = false;
+
+        HttpServletResponse proxy() {
+            return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{HttpServletResponse.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getOutputStream":
+                            return this;
+                        case "isCommitted":
+                            return committed;
+                        case "resetBuffer":
+                            if (committed)
+                                throw new IllegalStateException("committed");
+                            buffer.reset();
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+        }
+
+        @Override
+        public void write(int b) {
+            if (!committed) {
+                buffer.write(b);
+                if (buffer.size() > BUFFER_SIZE) {
+                    committed = true;
+                    byte[] bytes = buffer.toByteArray();
+                    System.arraycopy(bytes, bytes.length - tail.length, tail, 0, tail.length);
+                    buffer.reset();
+                }
+                return;
+            }
+            System.arraycopy(tail, 1, tail, 0, tail.length - 1);
+            tail[tail.length - 1] = (byte) b;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) { }
+
+        String body() {
+            return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        String tail() {
+            return new String(tail, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static long retainedHeapWhileStreaming(int rows) throws IOException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        Response response = new Response();
+        long[] used = new long[2];
+        System.gc();
+        used[0] = memory.getHeapMemoryUsage().getUsed();
+        JsonStreamWriter.writeArray(response.proxy(), writer -> {
+            for (int i = 0; i < rows; i++)
+                writer.write(new Skill("skill number " + i, i));
+            System.gc();
+            used[1] = memory.getHeapMemoryUsage().getUsed();
+        });
+        assertTrue(response.committed);
+        assertTrue(response.tail().endsWith("}]"));
+        return used[1] - used[0];
+    }
+
+    @Test
+    public void heapStaysFlatAsTheRowCountGrows() throws IOException {
+        retainedHeapWhileStreaming(10000);
+        // 400k rows are about 15MB of JSON; holding them would show as that much live heap
+        for (int rows: new int[]{20000, 100000, 400000}) {
+            long retained = retainedHeapWhileStreaming(rows);
+            assertTrue(rows + " rows retained " + retained + " bytes", retained < 2 * 1024 * 1024);
+        }
+    }
+
+    @Test
+    public void writesAWholeArray() throws IOException {
+        Response response = new Response();
+        JsonStreamWriter.writeArray(response.proxy(), writer -> {
+            writer.write(new Skill("Java", 1));
+            writer.write(new Skill("SQL", 2));
+        });
+        assertEquals("[{\"name\":\"Java\",\"point\":1},{\"name\":\"SQL\",\"point\":2}]", response.body());
+    }
+
+    @Test
+    public void failureBeforeCommitDiscardsTheOutput() {
+        Response response = new Response();
+        try {
+            JsonStreamWriter.writeArray(response.proxy(), writer -> {
+                writer.write(new Skill("Java", 1));
+                throw new IllegalStateException("database failed");
+            });
+            fail();
+        } catch (IllegalStateException | IOException e) {
+            assertFalse(response.committed);
+            assertEquals("", response.body());
+        }
+    }
+
+    @Test
+    public void failureAfterCommitLeavesTheArrayOpen() {
+        Response response = new Response();
+        try {
+            JsonStreamWriter.writeArray(response.proxy(), writer -> {
+                for (int i = 0; i < 10000; i++)
+                    writer.write(new Skill("skill number " + i, i));
+                throw new IllegalStateException("database failed");
+            });
+            fail();
+        } catch (IllegalStateException | IOException e) {
+            assertTrue(response.committed);
+            assertFalse(response.tail().endsWith("]"));
+        }
+    }
+}